@@ -0,0 +1,45 @@
+#!/usr/bin/env bash
+# Compares startup time and time to first request of the plain JVM, AOT + CDS and native builds.
+#
+# Build the variants first:
+#   ./mvnw -Pcds -DskipTests verify                 # target/cds (extracted jar + application.jsa)
+#   ./mvnw -Pnative -DskipTests native:compile      # target/cart-service (optional)
+#
+# The service needs its usual environment (Postgres from docker-compose, SPRING_DATASOURCE_* ...).
+# Usage: scripts/startup-benchmark.sh [runs]
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18087}
+JAR=$(cd target/cds && ls cart-service-*.jar)
+USER_ID=00000000-0000-0000-0000-000000000001
+
+run_variant() {
+  local name=$1; shift
+  local total=0
+  for ((i = 1; i <= RUNS; i++)); do
+    local log
+    log=$(mktemp)
+    local start
+    start=$(date +%s%N)
+    "$@" --server.port="$PORT" >"$log" 2>&1 &
+    local pid=$!
+    until curl -sf -o /dev/null -H "X-User-Id: $USER_ID" "http://localhost:$PORT/carts/is-active"; do
+      kill -0 "$pid" 2>/dev/null || { echo "$name exited early, see $log"; return 1; }
+      sleep 0.05
+    done
+    local elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    total=$((total + elapsed))
+    printf '%-10s run %d: first request after %5d ms, %s\n' "$name" "$i" "$elapsed" \
+      "$(grep -o 'Started CartServiceApplication in [0-9.]* seconds' "$log" || echo 'no startup line')"
+    kill "$pid" && wait "$pid" 2>/dev/null || true
+    rm -f "$log"
+  done
+  printf '%-10s average time to first request: %d ms\n\n' "$name" $((total / RUNS))
+}
+
+(cd target/cds && run_variant jvm java -jar "$JAR")
+(cd target/cds && run_variant aot-cds java -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true -jar "$JAR")
+if [[ -x target/cart-service ]]; then
+  run_variant native target/cart-service
+fi
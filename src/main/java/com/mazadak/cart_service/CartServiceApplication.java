@@ -2,12 +2,14 @@ package com.mazadak.cart_service;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.cloud.openfeign.EnableFeignClients;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
 @SpringBootApplication
 @EnableJpaAuditing(auditorAwareRef = "auditorAware")
 @EnableFeignClients
+@ConfigurationPropertiesScan
 @ComponentScan(basePackages = {"com.mazadak.cart_service", "com.mazadak.common"})
 public class CartServiceApplication {
     public static void main(String[] args) {
@@ -0,0 +1,17 @@
+package com.mazadak.cart_service.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs the endpoint within the concurrency limits of a compartment.
+ * On a class it applies to every method not annotated itself.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+
+    Compartment value();
+}
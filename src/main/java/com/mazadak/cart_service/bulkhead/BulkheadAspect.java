@@ -0,0 +1,52 @@
+package com.mazadak.cart_service.bulkhead;
+
+import com.mazadak.cart_service.config.BulkheadProperties;
+import com.mazadak.cart_service.exception.BulkheadFullException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.stereotype.Component;
+
+/**
+ * Runs {@link Bulkhead} endpoints within their compartment, rejecting them with 503 when it is full.
+ */
+@Aspect
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BulkheadAspect {
+
+    private final Bulkheads bulkheads;
+
+    private final BulkheadProperties properties;
+
+    @Around("@within(com.mazadak.cart_service.bulkhead.Bulkhead) || @annotation(com.mazadak.cart_service.bulkhead.Bulkhead)")
+    public Object isolate(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (!properties.enabled()) {
+            return joinPoint.proceed();
+        }
+        Compartment compartment = compartmentOf(joinPoint);
+        if (!bulkheads.tryAcquire(compartment)) {
+            log.warn("{} compartment is full, rejecting {}", compartment, joinPoint.getSignature().getName());
+            throw new BulkheadFullException("Cart service is busy, please retry");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            bulkheads.release(compartment);
+        }
+    }
+
+    private Compartment compartmentOf(ProceedingJoinPoint joinPoint) {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        Bulkhead bulkhead = AnnotatedElementUtils.findMergedAnnotation(signature.getMethod(), Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = AnnotatedElementUtils.findMergedAnnotation(joinPoint.getTarget().getClass(), Bulkhead.class);
+        }
+        return bulkhead.value();
+    }
+}
@@ -0,0 +1,96 @@
+package com.mazadak.cart_service.bulkhead;
+
+import com.mazadak.cart_service.config.BulkheadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One semaphore per compartment, with a bounded number of waiters.
+ * A request thread can only be held by a compartment while it runs or waits in it, so the threads
+ * a compartment can tie up are capped by its running and waiting limits.
+ */
+@Component
+public class Bulkheads {
+
+    private final Map<Compartment, Limiter> limiters = new EnumMap<>(Compartment.class);
+
+    public Bulkheads(BulkheadProperties properties, MeterRegistry meterRegistry) {
+        limiters.put(Compartment.DATABASE, new Limiter(properties.database()));
+        limiters.put(Compartment.PRODUCT_CATALOG, new Limiter(properties.productCatalog()));
+        limiters.put(Compartment.INTERNAL, new Limiter(properties.internal()));
+        limiters.forEach((compartment, limiter) -> {
+            String tag = compartment.name().toLowerCase().replace('_', '-');
+            limiter.rejected = Counter.builder("cart.bulkhead.rejected")
+                    .description("Requests rejected because their compartment was full")
+                    .tag("compartment", tag)
+                    .register(meterRegistry);
+            Gauge.builder("cart.bulkhead.in.use", limiter, l -> l.maxConcurrent - l.permits.availablePermits())
+                    .description("Requests running in the compartment")
+                    .tag("compartment", tag)
+                    .register(meterRegistry);
+            Gauge.builder("cart.bulkhead.waiting", limiter, l -> l.waiting.get())
+                    .description("Requests waiting to enter the compartment")
+                    .tag("compartment", tag)
+                    .register(meterRegistry);
+        });
+    }
+
+    /**
+     * Waits for room in the compartment.
+     * @return whether the caller entered it and must {@link #release} it
+     */
+    public boolean tryAcquire(Compartment compartment) throws InterruptedException {
+        Limiter limiter = limiters.get(compartment);
+        if (limiter.permits.tryAcquire()) {
+            return true;
+        }
+        if (limiter.waiting.incrementAndGet() > limiter.maxWaiting) {
+            limiter.waiting.decrementAndGet();
+            limiter.rejected.increment();
+            return false;
+        }
+        try {
+            if (limiter.permits.tryAcquire(limiter.maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } finally {
+            limiter.waiting.decrementAndGet();
+        }
+        limiter.rejected.increment();
+        return false;
+    }
+
+    public void release(Compartment compartment) {
+        limiters.get(compartment).permits.release();
+    }
+
+    private static final class Limiter {
+
+        private final int maxConcurrent;
+
+        private final int maxWaiting;
+
+        private final long maxWaitNanos;
+
+        private final Semaphore permits;
+
+        private final AtomicInteger waiting = new AtomicInteger();
+
+        private Counter rejected;
+
+        private Limiter(BulkheadProperties.Limits limits) {
+            this.maxConcurrent = limits.maxConcurrent();
+            this.maxWaiting = limits.maxWaiting();
+            this.maxWaitNanos = limits.maxWait().toNanos();
+            this.permits = new Semaphore(limits.maxConcurrent());
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.mazadak.cart_service.bulkhead;
+
+/**
+ * Endpoints grouped by what they wait on, each group with its own share of request threads.
+ */
+public enum Compartment {
+
+    // Endpoints that only use the database
+    DATABASE,
+
+    // Endpoints that may call the product catalog
+    PRODUCT_CATALOG,
+
+    // Long-running internal endpoints, such as the export
+    INTERNAL
+}
@@ -0,0 +1,143 @@
+package com.mazadak.cart_service.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mazadak.cart_service.config.CartCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON bodies of cart reads, keyed by user and view and tagged with the {@link CompactCart}
+ * version they were written from. A read of an unchanged cart copies the bytes to the response
+ * without mapping or serializing anything.
+ * Only used with the cart cache, which is what keeps versions stable between reads.
+ */
+@Component
+public class CartBodyCache {
+
+    public enum View { CART, ITEMS }
+
+    // Below this, compressing costs more than it saves
+    private static final int GZIP_MIN_SIZE = 1024;
+
+    private final boolean enabled;
+
+    private final boolean gzipBodies;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<Key, Body> bodies;
+
+    private final Counter hits;
+
+    private final Counter misses;
+
+    public CartBodyCache(CartCacheProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.gzipBodies = properties.gzipBodies();
+        this.objectMapper = objectMapper;
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(properties.bodyMaxSize().toBytes())
+                .weigher((Key key, Body body) -> body.json().length + (body.gzip() == null ? 0 : body.gzip().length))
+                .expireAfterWrite(properties.ttl())
+                .build();
+        this.hits = Counter.builder("cart.body.cache.requests").tag("result", "hit")
+                .description("Cart reads answered with a cached body")
+                .register(meterRegistry);
+        this.misses = Counter.builder("cart.body.cache.requests").tag("result", "miss")
+                .description("Cart reads that had to serialize the cart")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return whether the request wants JSON and cached bodies are in use; CBOR requests take the usual path
+     */
+    public boolean serves(HttpServletRequest request) {
+        if (!enabled) {
+            return false;
+        }
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        if (accept == null || accept.isBlank()) {
+            return true;
+        }
+        try {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+                    return false;
+                }
+                if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                    return true;
+                }
+            }
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        return false;
+    }
+
+    public void write(UUID userId, View view, CompactCart cart, HttpServletRequest request,
+                      HttpServletResponse response) throws IOException {
+        Body body = bodyOf(new Key(userId, view), cart);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        byte[] bytes = body.json();
+        if (body.gzip() != null && acceptsGzip(request)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            bytes = body.gzip();
+        }
+        response.setContentLength(bytes.length);
+        response.getOutputStream().write(bytes);
+    }
+
+    private Body bodyOf(Key key, CompactCart cart) {
+        Body cached = bodies.getIfPresent(key);
+        if (cached != null && cached.version() == cart.version()) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(key.view() == View.CART ? cart.toCartResponseDTO() : cart.toItemDTOs());
+            Body body = new Body(cart.version(), json, gzipBodies && json.length >= GZIP_MIN_SIZE ? gzip(json) : null);
+            // A slower request must not replace the body of a newer version
+            bodies.asMap().merge(key, body, (current, fresh) -> fresh.version() > current.version() ? fresh : current);
+            return body;
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("could not serialize cart of user " + key.userId(), e);
+        }
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
+
+    private static byte[] gzip(byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private record Key(UUID userId, View view) { }
+
+    private record Body(long version, byte[] json, byte[] gzip) { }
+}
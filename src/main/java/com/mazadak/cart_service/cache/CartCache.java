@@ -0,0 +1,91 @@
+package com.mazadak.cart_service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mazadak.cart_service.config.CartCacheProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Carts of recently active users, as {@link CompactCart}s keyed by user id and bounded by estimated heap.
+ * Mutations update a cached cart in place of dropping it, once their transaction has committed.
+ */
+@Component
+public class CartCache {
+
+    // A UUID key with compressed oops
+    private static final int KEY_BYTES = 32;
+
+    private final boolean enabled;
+
+    private final Cache<UUID, CompactCart> carts;
+
+    public CartCache(CartCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled();
+        this.carts = Caffeine.newBuilder()
+                .maximumWeight(properties.maxSize().toBytes())
+                .weigher((UUID userId, CompactCart cart) -> KEY_BYTES + cart.estimatedBytes())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, carts, "carts");
+        Gauge.builder("cart.cache.weight", carts, cache -> cache.policy().eviction()
+                        .map(eviction -> eviction.weightedSize().orElse(0))
+                        .orElse(0L))
+                .description("Estimated heap taken by cached carts")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns the cached cart, loading it on a miss.
+     * An update committed while the loader runs waits for it and is then applied to what it loaded,
+     * so a load that read the cart just before the commit is not left stale.
+     * @return null, caching nothing, if the loader returns null
+     */
+    public CompactCart get(UUID userId, Function<UUID, CompactCart> loader) {
+        return carts.get(userId, loader);
+    }
+
+    /**
+     * Applies the change to the user's cached cart, if any, after the current transaction commits.
+     * Changes must be absolute (set, remove, clear) since a load racing with the commit may already
+     * include them.
+     */
+    public void update(UUID userId, UnaryOperator<CompactCart> change) {
+        if (enabled) {
+            afterCommit(() -> carts.asMap().computeIfPresent(userId, (id, cart) -> change.apply(cart)));
+        }
+    }
+
+    public void invalidate(UUID userId) {
+        if (enabled) {
+            afterCommit(() -> carts.invalidate(userId));
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
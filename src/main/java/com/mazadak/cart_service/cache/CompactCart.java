@@ -0,0 +1,164 @@
+package com.mazadak.cart_service.cache;
+
+import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
+import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.model.Cart;
+import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.enums.Status;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable cart for in-memory caching, without per-item objects.
+ * Item i keeps its item id and product id as four longs from {@code ids[4 * i]} and its quantity in
+ * {@code quantities[i]}. Updates return a copy and leave this instance untouched.
+ * Every instance gets a new version, unique within the JVM, so a version identifies one cart state.
+ */
+public final class CompactCart {
+
+    private static final int STRIDE = 4;
+
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
+    private final long version = VERSIONS.incrementAndGet();
+
+    private final long cartIdMsb;
+
+    private final long cartIdLsb;
+
+    private final long userIdMsb;
+
+    private final long userIdLsb;
+
+    private final boolean active;
+
+    private final long[] ids;
+
+    private final int[] quantities;
+
+    private CompactCart(long cartIdMsb, long cartIdLsb, long userIdMsb, long userIdLsb, boolean active,
+                        long[] ids, int[] quantities) {
+        this.cartIdMsb = cartIdMsb;
+        this.cartIdLsb = cartIdLsb;
+        this.userIdMsb = userIdMsb;
+        this.userIdLsb = userIdLsb;
+        this.active = active;
+        this.ids = ids;
+        this.quantities = quantities;
+    }
+
+    public static CompactCart of(Cart cart) {
+        List<CartItem> items = cart.getCartItems();
+        long[] ids = new long[items.size() * STRIDE];
+        int[] quantities = new int[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            CartItem item = items.get(i);
+            put(ids, i, item.getItemId(), item.getProductId());
+            quantities[i] = item.getQuantity();
+        }
+        return new CompactCart(
+                cart.getCartId().getMostSignificantBits(), cart.getCartId().getLeastSignificantBits(),
+                cart.getUserId().getMostSignificantBits(), cart.getUserId().getLeastSignificantBits(),
+                cart.getStatus() == Status.ACTIVE, ids, quantities);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    public int size() {
+        return quantities.length;
+    }
+
+    /**
+     * Sets the quantity of the product, adding it as the given item if it is not in the cart.
+     */
+    public CompactCart withQuantity(UUID itemId, UUID productId, int quantity) {
+        int index = indexOf(productId);
+        if (index >= 0) {
+            int[] updated = quantities.clone();
+            updated[index] = quantity;
+            return new CompactCart(cartIdMsb, cartIdLsb, userIdMsb, userIdLsb, active, ids, updated);
+        }
+        int size = size();
+        long[] grownIds = Arrays.copyOf(ids, ids.length + STRIDE);
+        int[] grownQuantities = Arrays.copyOf(quantities, size + 1);
+        put(grownIds, size, itemId, productId);
+        grownQuantities[size] = quantity;
+        return new CompactCart(cartIdMsb, cartIdLsb, userIdMsb, userIdLsb, active, grownIds, grownQuantities);
+    }
+
+    public CompactCart without(UUID productId) {
+        int index = indexOf(productId);
+        if (index < 0) {
+            return this;
+        }
+        long[] shrunkIds = new long[ids.length - STRIDE];
+        System.arraycopy(ids, 0, shrunkIds, 0, index * STRIDE);
+        System.arraycopy(ids, (index + 1) * STRIDE, shrunkIds, index * STRIDE, shrunkIds.length - index * STRIDE);
+        int[] shrunkQuantities = new int[quantities.length - 1];
+        System.arraycopy(quantities, 0, shrunkQuantities, 0, index);
+        System.arraycopy(quantities, index + 1, shrunkQuantities, index, shrunkQuantities.length - index);
+        return new CompactCart(cartIdMsb, cartIdLsb, userIdMsb, userIdLsb, active, shrunkIds, shrunkQuantities);
+    }
+
+    public CompactCart cleared() {
+        return new CompactCart(cartIdMsb, cartIdLsb, userIdMsb, userIdLsb, active, new long[0], new int[0]);
+    }
+
+    public CompactCart withActive(boolean active) {
+        return new CompactCart(cartIdMsb, cartIdLsb, userIdMsb, userIdLsb, active, ids, quantities);
+    }
+
+    public CartResponseDTO toCartResponseDTO() {
+        return new CartResponseDTO(new UUID(cartIdMsb, cartIdLsb), new UUID(userIdMsb, userIdLsb), toItemDTOs());
+    }
+
+    public List<CartItemResponseDTO> toItemDTOs() {
+        List<CartItemResponseDTO> items = new ArrayList<>(size());
+        for (int i = 0; i < size(); i++) {
+            int base = i * STRIDE;
+            items.add(new CartItemResponseDTO(
+                    new UUID(ids[base], ids[base + 1]), new UUID(ids[base + 2], ids[base + 3]), quantities[i]));
+        }
+        return items;
+    }
+
+    /**
+     * Shallow heap size with compressed oops: this object plus its two arrays.
+     */
+    public int estimatedBytes() {
+        return 64 + align(16 + ids.length * Long.BYTES) + align(16 + quantities.length * Integer.BYTES);
+    }
+
+    private int indexOf(UUID productId) {
+        long msb = productId.getMostSignificantBits();
+        long lsb = productId.getLeastSignificantBits();
+        for (int i = 0; i < size(); i++) {
+            if (ids[i * STRIDE + 2] == msb && ids[i * STRIDE + 3] == lsb) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void put(long[] ids, int index, UUID itemId, UUID productId) {
+        int base = index * STRIDE;
+        ids[base] = itemId.getMostSignificantBits();
+        ids[base + 1] = itemId.getLeastSignificantBits();
+        ids[base + 2] = productId.getMostSignificantBits();
+        ids[base + 3] = productId.getLeastSignificantBits();
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mazadak.cart_service.client;
+
+import com.mazadak.cart_service.dto.response.StockAvailabilityDTO;
+import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+import java.util.List;
+import java.util.UUID;
+
+@FeignClient(name = "inventory")
+public interface InventoryClient {
+
+    @PostMapping(value = "/inventories/availability", consumes = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<List<StockAvailabilityDTO>> getAvailability(@RequestBody List<UUID> productIds);
+}
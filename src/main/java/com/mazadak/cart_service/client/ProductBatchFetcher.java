@@ -0,0 +1,129 @@
+package com.mazadak.cart_service.client;
+
+import com.mazadak.cart_service.config.ProductFetchProperties;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.metrics.CartMetrics;
+import feign.FeignException;
+import feign.RetryableException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Fetches product summaries in chunks, several at a time for large carts, so a cart of hundreds of
+ * products takes about as long as its slowest chunk and a failed chunk is retried on its own.
+ * Summaries come back in the order of the ids asked for, as far as product-catalog keeps it per chunk.
+ * Chunk threads run with the caller's MDC; the JFR recorder times the whole fetch on the caller's thread.
+ */
+@Component
+@Slf4j
+public class ProductBatchFetcher {
+
+    private final ProductClient productClient;
+
+    private final ProductFetchProperties properties;
+
+    private final CartMetrics cartMetrics;
+
+    // The calls wait on the network, so a virtual thread per chunk; parallelism is bounded per cart
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("product-fetch-", 0).factory());
+
+    public ProductBatchFetcher(ProductClient productClient, ProductFetchProperties properties, CartMetrics cartMetrics) {
+        this.productClient = productClient;
+        this.properties = properties;
+        this.cartMetrics = cartMetrics;
+    }
+
+    /**
+     * @throws FeignException if a chunk still fails after its retries
+     */
+    public List<ProductSummaryDTO> fetch(List<UUID> productIds) {
+        int chunkSize = Math.max(1, properties.chunkSize());
+        if (productIds.size() <= chunkSize) {
+            return fetchChunk(productIds);
+        }
+        Semaphore permits = new Semaphore(Math.max(1, properties.parallelism()));
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        List<Future<List<ProductSummaryDTO>>> chunks = new ArrayList<>();
+        for (int from = 0; from < productIds.size(); from += chunkSize) {
+            List<UUID> chunk = productIds.subList(from, Math.min(from + chunkSize, productIds.size()));
+            chunks.add(executor.submit(() -> {
+                if (mdc != null) {
+                    MDC.setContextMap(mdc);
+                }
+                permits.acquire();
+                try {
+                    return fetchChunk(chunk);
+                } finally {
+                    permits.release();
+                    MDC.clear();
+                }
+            }));
+        }
+        List<ProductSummaryDTO> products = new ArrayList<>(productIds.size());
+        try {
+            for (Future<List<ProductSummaryDTO>> chunk : chunks) {
+                products.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching products", e);
+        } catch (ExecutionException e) {
+            chunks.forEach(chunk -> chunk.cancel(true));
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Could not fetch products", e.getCause());
+        }
+        return products;
+    }
+
+    @PreDestroy
+    void close() {
+        executor.close();
+    }
+
+    private List<ProductSummaryDTO> fetchChunk(List<UUID> productIds) {
+        cartMetrics.recordProductBatchSize(productIds.size());
+        for (int attempt = 1; ; attempt++) {
+            try {
+                ResponseEntity<List<ProductSummaryDTO>> response =
+                        productClient.getProductsByIds(ProductClient.SUMMARY_FIELDS, productIds);
+                return response.getBody() != null ? response.getBody() : List.of();
+            } catch (FeignException e) {
+                if (attempt >= properties.attempts() || !isRetryable(e)) {
+                    throw e;
+                }
+                log.warn("product batch of {} ids failed with {}, retrying", productIds.size(), e.status());
+                pause(attempt);
+            }
+        }
+    }
+
+    private void pause(int attempt) {
+        try {
+            Thread.sleep(properties.retryBackoff().multipliedBy(attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while retrying a product batch", e);
+        }
+    }
+
+    private static boolean isRetryable(FeignException e) {
+        return e instanceof RetryableException || e.status() >= 500;
+    }
+}
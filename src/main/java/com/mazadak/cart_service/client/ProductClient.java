@@ -1,17 +1,27 @@
 package com.mazadak.cart_service.client;
 
 
-import com.mazadak.cart_service.dto.response.ProductResponseDTO;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
 import org.springframework.cloud.openfeign.FeignClient;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 import java.util.UUID;
 
 @FeignClient(name = "product-catalog")
 public interface ProductClient {
-    @PostMapping("/products/batch")
-    ResponseEntity<List<ProductResponseDTO>> getProductsByIds(@RequestBody List<UUID> productIds);
+
+    // Prefer CBOR, fall back to JSON if product-catalog does not offer it
+    String ACCEPT_CBOR_OR_JSON = MediaType.APPLICATION_CBOR_VALUE + ", " + MediaType.APPLICATION_JSON_VALUE + ";q=0.9";
+
+    // Projection of the product fields a cart renders
+    String SUMMARY_FIELDS = "productId,title,description,price,images";
+
+    @PostMapping(value = "/products/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = ACCEPT_CBOR_OR_JSON)
+    ResponseEntity<List<ProductSummaryDTO>> getProductsByIds(@RequestParam("fields") String fields,
+                                                             @RequestBody List<UUID> productIds);
 }
@@ -0,0 +1,94 @@
+package com.mazadak.cart_service.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mazadak.cart_service.config.ProductCacheProperties;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.model.ProductSnapshot;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recently seen product snapshots, keyed by product id.
+ * Filled from every product batch the service fetches; a miss costs one product-catalog call.
+ */
+@Component
+@Slf4j
+public class ProductSnapshotCache {
+
+    private final ProductClient productClient;
+
+    private final Cache<UUID, ProductSnapshot> snapshots;
+
+    private final Duration itemSnapshotMaxAge;
+
+    public ProductSnapshotCache(ProductClient productClient, ProductCacheProperties properties, MeterRegistry meterRegistry) {
+        this.productClient = productClient;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        this.itemSnapshotMaxAge = properties.itemSnapshotMaxAge();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "product.snapshots");
+    }
+
+    /**
+     * @return the product's snapshot, or null if it is not cached and product-catalog could not provide it
+     */
+    public ProductSnapshot snapshotOf(UUID productId) {
+        ProductSnapshot snapshot = snapshots.getIfPresent(productId);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        try {
+            ResponseEntity<List<ProductSummaryDTO>> response =
+                    productClient.getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(productId));
+            if (response != null && response.getBody() != null) {
+                putAll(response.getBody());
+            }
+        } catch (RuntimeException e) {
+            log.warn("could not fetch product {}", productId, e);
+            return null;
+        }
+        return snapshots.getIfPresent(productId);
+    }
+
+    /**
+     * @return the cached snapshot of the product, or null; never calls product-catalog
+     */
+    public ProductSnapshot cachedSnapshotOf(UUID productId) {
+        return snapshots.getIfPresent(productId);
+    }
+
+    public void putAll(Collection<ProductSummaryDTO> products) {
+        long now = System.currentTimeMillis();
+        for (ProductSummaryDTO product : products) {
+            snapshots.put(product.productId(), ProductSnapshot.of(product, now));
+        }
+    }
+
+    /**
+     * Replaces the cached snapshot if the given one is newer, for product changes learned from events.
+     */
+    public void refresh(UUID productId, ProductSnapshot snapshot) {
+        snapshots.asMap().computeIfPresent(productId, (id, cached) ->
+                snapshot.isNewerThan(cached.version()) ? snapshot : cached);
+    }
+
+    /**
+     * @return whether a snapshot stored on a cart item is recent enough to render without product-catalog
+     */
+    public boolean isFresh(ProductSnapshot snapshot) {
+        return snapshot != null
+                && snapshot.isTakenAfter(System.currentTimeMillis() - itemSnapshotMaxAge.toMillis());
+    }
+}
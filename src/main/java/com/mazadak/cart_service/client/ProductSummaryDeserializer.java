@@ -0,0 +1,87 @@
+package com.mazadak.cart_service.client;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Streams a product-catalog product into a {@link ProductSummaryDTO}.
+ * Fields the cart does not use are skipped without being materialized, and the
+ * {@code images} array is scanned for the primary image (falling back to the first one).
+ */
+public class ProductSummaryDeserializer extends StdDeserializer<ProductSummaryDTO> {
+
+    public ProductSummaryDeserializer() {
+        super(ProductSummaryDTO.class);
+    }
+
+    @Override
+    public ProductSummaryDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        UUID productId = null;
+        String title = null;
+        String description = null;
+        BigDecimal price = null;
+        String primaryImage = null;
+
+        JsonToken token = p.currentToken() == JsonToken.START_OBJECT ? p.nextToken() : p.currentToken();
+        for (; token == JsonToken.FIELD_NAME; token = p.nextToken()) {
+            String field = p.currentName();
+            p.nextToken();
+            switch (field) {
+                case "productId" -> productId = readNullable(p, ctxt, UUID.class);
+                case "title" -> title = p.getValueAsString();
+                case "description" -> description = p.getValueAsString();
+                case "price" -> price = readNullable(p, ctxt, BigDecimal.class);
+                case "primaryImage" -> primaryImage = p.getValueAsString();
+                case "images" -> primaryImage = readPrimaryImage(p);
+                default -> p.skipChildren();
+            }
+        }
+        return new ProductSummaryDTO(productId, title, description, price, primaryImage);
+    }
+
+    private String readPrimaryImage(JsonParser p) throws IOException {
+        if (p.currentToken() != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            return null;
+        }
+        String first = null;
+        String primary = null;
+        boolean seenFirst = false;
+        for (JsonToken token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+            if (token != JsonToken.START_OBJECT) {
+                p.skipChildren();
+                continue;
+            }
+            String imageUri = null;
+            boolean isPrimary = false;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "imageUri" -> imageUri = p.getValueAsString();
+                    case "isPrimary" -> isPrimary = p.getValueAsBoolean();
+                    default -> p.skipChildren();
+                }
+            }
+            if (!seenFirst) {
+                first = imageUri;
+                seenFirst = true;
+            }
+            if (isPrimary && primary == null) {
+                primary = imageUri;
+            }
+        }
+        return primary != null ? primary : first;
+    }
+
+    private <T> T readNullable(JsonParser p, DeserializationContext ctxt, Class<T> type) throws IOException {
+        return p.currentToken() == JsonToken.VALUE_NULL ? null : ctxt.readValue(p, type);
+    }
+}
@@ -0,0 +1,69 @@
+package com.mazadak.cart_service.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mazadak.cart_service.config.InventoryCacheProperties;
+import com.mazadak.cart_service.dto.response.StockAvailabilityDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Short-lived stock levels per product. All misses of a lookup are fetched from inventory in one batch call.
+ */
+@Component
+@Slf4j
+public class StockAvailabilityCache {
+
+    private final InventoryClient inventoryClient;
+
+    private final Cache<UUID, Integer> availableQuantities;
+
+    public StockAvailabilityCache(InventoryClient inventoryClient, InventoryCacheProperties properties,
+                                  MeterRegistry meterRegistry) {
+        this.inventoryClient = inventoryClient;
+        this.availableQuantities = Caffeine.newBuilder()
+                .maximumSize(properties.maxSize())
+                .expireAfterWrite(properties.ttl())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, availableQuantities, "stock.availability");
+    }
+
+    /**
+     * @return available quantity per product; products inventory could not answer for are left out
+     */
+    public Map<UUID, Integer> availableQuantities(Collection<UUID> productIds) {
+        Map<UUID, Integer> result = new HashMap<>(availableQuantities.getAllPresent(productIds));
+        List<UUID> missing = new ArrayList<>();
+        for (UUID productId : productIds) {
+            if (!result.containsKey(productId)) {
+                missing.add(productId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+        try {
+            ResponseEntity<List<StockAvailabilityDTO>> response = inventoryClient.getAvailability(missing);
+            if (response != null && response.getBody() != null) {
+                for (StockAvailabilityDTO availability : response.getBody()) {
+                    availableQuantities.put(availability.productId(), availability.availableQuantity());
+                    result.put(availability.productId(), availability.availableQuantity());
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("could not fetch stock availability for {} products", missing.size(), e);
+        }
+        return result;
+    }
+}
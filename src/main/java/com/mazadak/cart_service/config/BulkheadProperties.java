@@ -0,0 +1,30 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Concurrency limits of each endpoint compartment, so a slow dependency can only hold the request
+ * threads of the endpoints that use it.
+ */
+@ConfigurationProperties(prefix = "cart.bulkhead")
+public record BulkheadProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue Limits database,
+        @DefaultValue Limits productCatalog,
+        @DefaultValue Limits internal
+) {
+
+    /**
+     * @param maxConcurrent requests running at once
+     * @param maxWaiting requests waiting for one of them to finish, beyond which requests are rejected
+     * @param maxWait how long a request waits before it is rejected
+     */
+    public record Limits(
+            @DefaultValue("100") int maxConcurrent,
+            @DefaultValue("50") int maxWaiting,
+            @DefaultValue("1s") Duration maxWait
+    ) { }
+}
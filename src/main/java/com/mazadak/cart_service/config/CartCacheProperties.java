@@ -0,0 +1,25 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory cart cache.
+ * Entries only follow the changes made through this instance, so enable it only when the gateway pins
+ * each user to one instance.
+ * @param maxSize estimated heap the cached carts may take
+ * @param ttl how long a cached cart is served after it was loaded
+ * @param bodyMaxSize bytes of serialized JSON responses kept for cached carts
+ * @param gzipBodies also keep a gzip-compressed copy of larger bodies for clients that accept it
+ */
+@ConfigurationProperties(prefix = "cart.cart-cache")
+public record CartCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("256MB") DataSize maxSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("64MB") DataSize bodyMaxSize,
+        @DefaultValue("true") boolean gzipBodies
+) { }
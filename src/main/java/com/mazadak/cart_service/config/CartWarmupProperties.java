@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the JIT warm-up that runs before the instance takes traffic.
+ * @param iterations warm-up rounds to run at most
+ * @param targetLatency stop early once a batch averages this per request, unset to always run every iteration
+ * @param maxDuration hard cap on the warm-up, after which the instance is released anyway
+ */
+@ConfigurationProperties(prefix = "cart.warmup")
+public record CartWarmupProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1000") int iterations,
+        Duration targetLatency,
+        @DefaultValue("60s") Duration maxDuration
+) { }
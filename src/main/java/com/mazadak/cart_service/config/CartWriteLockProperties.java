@@ -0,0 +1,18 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-process per-cart write lock.
+ * @param stripes number of lock stripes, rounded up to a power of two
+ * @param timeout how long a mutation waits for its cart before giving up
+ */
+@ConfigurationProperties(prefix = "cart.write-lock")
+public record CartWriteLockProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1024") int stripes,
+        @DefaultValue("5s") Duration timeout
+) { }
@@ -0,0 +1,22 @@
+package com.mazadak.cart_service.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Registers application/cbor next to JSON for service-to-service calls.
+ * Picked up by both Spring MVC and the Feign clients, so callers opt in with {@code Accept: application/cbor}.
+ * UUIDs are written as 16-byte binary and BigDecimals as decimal fractions instead of text.
+ */
+@Configuration
+public class CborConfig {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(
+                builder.createXmlMapper(false).factory(new CBORFactory()).build());
+    }
+}
@@ -0,0 +1,26 @@
+package com.mazadak.cart_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Lazy proxy over a routing data source that closes the pools behind it with the context,
+ * since none of them is a bean of its own.
+ */
+final class ClosingDataSourceProxy extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+    private final List<HikariDataSource> pools;
+
+    ClosingDataSourceProxy(DataSource target, List<HikariDataSource> pools) {
+        super(target);
+        this.pools = List.copyOf(pools);
+    }
+
+    @Override
+    public void close() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
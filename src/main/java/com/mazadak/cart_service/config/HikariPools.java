@@ -0,0 +1,32 @@
+package com.mazadak.cart_service.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+
+/**
+ * Builds the extra Hikari pools used by replica and shard routing, with the
+ * {@code spring.datasource.hikari} settings and Micrometer metrics of the auto-configured pool.
+ */
+final class HikariPools {
+
+    private HikariPools() { }
+
+    static HikariDataSource create(String name, String url, String username, String password,
+                                   Binder binder, MeterRegistry meterRegistry) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setJdbcUrl(url);
+        pool.setUsername(username);
+        pool.setPassword(password);
+        configure(pool, name, binder, meterRegistry);
+        return pool;
+    }
+
+    static void configure(HikariDataSource pool, String name, Binder binder, MeterRegistry meterRegistry) {
+        binder.bind("spring.datasource.hikari", Bindable.ofInstance(pool));
+        pool.setPoolName(name);
+        pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+    }
+}
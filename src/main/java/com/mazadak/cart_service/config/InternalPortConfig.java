@@ -0,0 +1,66 @@
+package com.mazadak.cart_service.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.catalina.connector.Connector;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+
+/**
+ * Serves the {@code /carts/internal} endpoints (export, product demand) only on {@code cart.internal.port},
+ * an extra Tomcat connector that is not exposed through the gateway. On any other port they answer 404.
+ */
+@Configuration
+public class InternalPortConfig {
+
+    static final String INTERNAL_PATH = "/carts/internal/";
+
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> internalPortConnector(InternalPortProperties properties) {
+        return factory -> {
+            if (properties.enabled()) {
+                Connector connector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+                connector.setPort(properties.port());
+                factory.addAdditionalTomcatConnectors(connector);
+            }
+        };
+    }
+
+    @Bean
+    public OncePerRequestFilter internalPortFilter(InternalPortProperties properties) {
+        return new InternalPortFilter(properties);
+    }
+
+    static class InternalPortFilter extends OncePerRequestFilter {
+
+        private final InternalPortProperties properties;
+
+        InternalPortFilter(InternalPortProperties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        protected boolean shouldNotFilter(HttpServletRequest request) {
+            // Decoded and without matrix parameters, as MVC maps it, so no spelling of the path gets past
+            return !UrlPathHelper.defaultInstance.getPathWithinApplication(request).startsWith(INTERNAL_PATH);
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws ServletException, IOException {
+            if (!properties.enabled() || request.getLocalPort() != properties.port()) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Extra HTTP port serving the {@code /carts/internal} endpoints, apart from the port the gateway routes to.
+ * @param port a port not reachable from outside the cluster; the internal endpoints answer 404 while it is unset
+ */
+@ConfigurationProperties(prefix = "cart.internal")
+public record InternalPortProperties(
+        @DefaultValue("-1") int port
+) {
+
+    public boolean enabled() {
+        return port > 0;
+    }
+}
@@ -0,0 +1,17 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the stock availability cache.
+ * @param maxSize products kept at most
+ * @param ttl how long an availability answer is reused, kept short since stock moves quickly
+ */
+@ConfigurationProperties(prefix = "cart.inventory-cache")
+public record InventoryCacheProperties(
+        @DefaultValue("50000") long maxSize,
+        @DefaultValue("5s") Duration ttl
+) { }
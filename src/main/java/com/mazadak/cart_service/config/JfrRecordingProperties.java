@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Bounds for recordings started through the {@code jfr} actuator endpoint.
+ * @param settings JFR configuration to start from, {@code default} or {@code profile}
+ * @param maxAge oldest data kept in the recording
+ * @param maxSize largest the on-disk recording may grow
+ */
+@ConfigurationProperties(prefix = "cart.jfr")
+public record JfrRecordingProperties(
+        @DefaultValue("profile") String settings,
+        @DefaultValue("10m") Duration maxAge,
+        @DefaultValue("100MB") DataSize maxSize
+) { }
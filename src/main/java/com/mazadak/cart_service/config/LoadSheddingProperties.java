@@ -0,0 +1,35 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for rejecting cart requests early when the service is overloaded.
+ * @param initialLimit concurrent requests admitted at startup, adjusted from then on between
+ *                     {@code minLimit} and {@code maxLimit}
+ * @param latencyThreshold a request slower than this shrinks the limit by {@code backoffRatio},
+ *                         faster ones grow it by one while it is at least half used
+ * @param userRate requests per second each user may sustain, with bursts up to {@code userBurst}
+ * @param maxTrackedUsers users whose request rate is tracked at once, least recent ones are forgotten
+ * @param dbMaxPending threads waiting for a database connection above which requests are rejected
+ * @param clientMaxPending requests waiting for a connection of the Feign client pool above which
+ *                         requests calling the product catalog are rejected
+ * @param retryAfter delay suggested to clients rejected for overload
+ */
+@ConfigurationProperties(prefix = "cart.load-shedding")
+public record LoadSheddingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("20") int initialLimit,
+        @DefaultValue("4") int minLimit,
+        @DefaultValue("200") int maxLimit,
+        @DefaultValue("250ms") Duration latencyThreshold,
+        @DefaultValue("0.9") double backoffRatio,
+        @DefaultValue("20") double userRate,
+        @DefaultValue("40") int userBurst,
+        @DefaultValue("100000") int maxTrackedUsers,
+        @DefaultValue("10") int dbMaxPending,
+        @DefaultValue("20") int clientMaxPending,
+        @DefaultValue("1s") Duration retryAfter
+) { }
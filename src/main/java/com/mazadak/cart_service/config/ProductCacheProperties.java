@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory product snapshot cache.
+ * @param maxSize products kept at most
+ * @param ttl how long a snapshot is trusted after it was fetched
+ * @param itemSnapshotMaxAge how old a cart item's stored snapshot may be before a detailed read fetches it
+ *        again; product-updated events normally refresh it well before
+ */
+@ConfigurationProperties(prefix = "cart.product-cache")
+public record ProductCacheProperties(
+        @DefaultValue("50000") long maxSize,
+        @DefaultValue("10m") Duration ttl,
+        @DefaultValue("1h") Duration itemSnapshotMaxAge
+) { }
@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the products-in-carts counters.
+ * @param stripes rows per product; each instance writes to one of them
+ * @param flushInterval how often counted changes are written to the database
+ * @param reconcileInterval how often the counters are recomputed from the cart items
+ */
+@ConfigurationProperties(prefix = "cart.product-demand")
+public record ProductDemandProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("16") int stripes,
+        @DefaultValue("1s") Duration flushInterval,
+        @DefaultValue("1h") Duration reconcileInterval
+) { }
@@ -0,0 +1,27 @@
+package com.mazadak.cart_service.config;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+/**
+ * Retries a failed batch of product events and then publishes its records to {@code <topic>.DLT},
+ * so an event is never skipped without a trace. Boot applies the handler to the listener containers.
+ */
+@Configuration
+public class ProductEventsConfig {
+
+    @Bean
+    public CommonErrorHandler productEventsErrorHandler(KafkaTemplate<?, ?> kafkaTemplate, ProductEventsProperties properties) {
+        // Any partition of the dead-letter topic, which need not have as many as the source
+        DeadLetterPublishingRecoverer recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate,
+                (record, e) -> new TopicPartition(record.topic() + properties.deadLetterSuffix(), -1));
+        return new DefaultErrorHandler(recoverer,
+                new FixedBackOff(properties.retryBackoff().toMillis(), Math.max(0, properties.retries())));
+    }
+}
@@ -0,0 +1,30 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the consumer of product lifecycle events. The listener itself reads the same keys
+ * through placeholders, since annotation attributes cannot refer to this record.
+ * @param productDeletedTopic topic of products removed from the catalog
+ * @param auctionClosedTopic topic of auctions that ended, whose products can no longer be bought
+ * @param productUpdatedTopic topic of product changes, copied to the snapshots of the cart items
+ * @param chunkSize products removed from carts per statement, or refreshed per transaction
+ * @param retries times a failed batch is retried before its records go to the dead-letter topic
+ * @param retryBackoff pause before each retry
+ * @param deadLetterSuffix appended to the topic of a record that could not be applied to name its dead-letter topic
+ */
+@ConfigurationProperties(prefix = "cart.product-events")
+public record ProductEventsProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("product-deleted") String productDeletedTopic,
+        @DefaultValue("auction-closed") String auctionClosedTopic,
+        @DefaultValue("product-updated") String productUpdatedTopic,
+        @DefaultValue("cart-service") String groupId,
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("5") int retries,
+        @DefaultValue("1s") Duration retryBackoff,
+        @DefaultValue(".DLT") String deadLetterSuffix
+) { }
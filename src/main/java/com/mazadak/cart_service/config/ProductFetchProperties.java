@@ -0,0 +1,21 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * How product summaries of large carts are fetched from product-catalog.
+ * @param chunkSize product ids per batch call
+ * @param parallelism batch calls of one cart running at once
+ * @param attempts tries per batch call on a connection error or server error
+ * @param retryBackoff pause before a retry, multiplied by the attempt number
+ */
+@ConfigurationProperties(prefix = "cart.product-fetch")
+public record ProductFetchProperties(
+        @DefaultValue("50") int chunkSize,
+        @DefaultValue("4") int parallelism,
+        @DefaultValue("2") int attempts,
+        @DefaultValue("50ms") Duration retryBackoff
+) { }
@@ -0,0 +1,50 @@
+package com.mazadak.cart_service.config;
+
+import com.mazadak.cart_service.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the auto-configured pool with one primary and one pool per read replica behind a
+ * {@link ReadWriteRoutingDataSource}. The lazy proxy delays picking a pool until the first statement,
+ * by which point the transaction's read-only flag is known. The pools are closed with the context.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "cart.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public DataSource dataSource(DataSourceProperties primaryProperties, ReadReplicaProperties replicaProperties,
+                                 Environment environment, MeterRegistry meterRegistry) {
+        Binder binder = Binder.get(environment);
+        HikariDataSource primary = primaryProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        HikariPools.configure(primary, "cart-primary", binder, meterRegistry);
+
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (ReadReplicaProperties.Node node : replicaProperties.nodes()) {
+            HikariDataSource replica = HikariPools.create("cart-replica-" + replicas.size(), node.url(),
+                    node.username() != null ? node.username() : primaryProperties.determineUsername(),
+                    node.password() != null ? node.password() : primaryProperties.determinePassword(),
+                    binder, meterRegistry);
+            replica.setReadOnly(true);
+            replicas.add(replica);
+        }
+
+        ReadWriteRoutingDataSource routing =
+                new ReadWriteRoutingDataSource(primary, List.copyOf(replicas), replicaProperties.lagCheckInterval());
+        routing.afterPropertiesSet();
+        List<HikariDataSource> pools = new ArrayList<>(replicas);
+        pools.add(primary);
+        return new ClosingDataSourceProxy(routing, pools);
+    }
+}
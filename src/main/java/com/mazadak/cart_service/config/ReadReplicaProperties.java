@@ -0,0 +1,22 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Read replicas that serve read-only transactions.
+ * @param nodes replica connection settings; username and password default to the primary's
+ * @param lagCheckInterval how often a lagging replica is re-checked before a consistency token is honoured on it
+ */
+@ConfigurationProperties(prefix = "cart.read-replicas")
+public record ReadReplicaProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Node> nodes,
+        @DefaultValue("100ms") Duration lagCheckInterval
+) {
+
+    public record Node(String url, String username, String password) { }
+}
@@ -0,0 +1,74 @@
+package com.mazadak.cart_service.config;
+
+import com.mazadak.cart_service.lock.StripedCartLocks;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import com.mazadak.cart_service.shard.ShardRebalancer;
+import com.mazadak.cart_service.shard.ShardRing;
+import com.mazadak.cart_service.shard.ShardRouter;
+import com.mazadak.cart_service.shard.ShardRoutingDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Replaces the auto-configured pool with one pool per shard behind a {@link ShardRoutingDataSource}.
+ * The JPA transaction manager stays as is: a transaction opens on the shard chosen for the calling
+ * user, and the lazy proxy defers the choice until its first statement.
+ * Hibernate schema management only runs against the first shard.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+public class ShardingDataSourceConfig {
+
+    @Bean(destroyMethod = "close")
+    public ShardDataSources shardDataSources(ShardingProperties properties, ReadReplicaProperties replicaProperties,
+                                             DataSourceProperties defaults, Environment environment,
+                                             MeterRegistry meterRegistry) {
+        if (replicaProperties.enabled()) {
+            throw new IllegalStateException("cart.sharding and cart.read-replicas cannot be enabled together");
+        }
+        if (properties.shards().isEmpty()) {
+            throw new IllegalStateException("cart.sharding.shards must list at least one shard");
+        }
+        Binder binder = Binder.get(environment);
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (ShardingProperties.Shard shard : properties.shards()) {
+            pools.put(shard.name(), HikariPools.create("cart-" + shard.name(), shard.url(),
+                    shard.username() != null ? shard.username() : defaults.determineUsername(),
+                    shard.password() != null ? shard.password() : defaults.determinePassword(),
+                    binder, meterRegistry));
+        }
+        return new ShardDataSources(pools);
+    }
+
+    @Bean
+    public DataSource dataSource(ShardDataSources shards) {
+        ShardRoutingDataSource routing = new ShardRoutingDataSource(shards);
+        routing.afterPropertiesSet();
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties, ShardDataSources shards) {
+        List<String> ring = properties.ring().isEmpty() ? List.copyOf(shards.names()) : properties.ring();
+        ShardRing previousRing = properties.previousRing().isEmpty()
+                ? null : new ShardRing(properties.previousRing(), properties.virtualNodes());
+        return new ShardRouter(new ShardRing(ring, properties.virtualNodes()), previousRing, shards);
+    }
+
+    @Bean
+    public ShardRebalancer shardRebalancer(ShardRouter router, ShardDataSources shards, StripedCartLocks cartLocks,
+                                           ShardingProperties properties) {
+        return new ShardRebalancer(router, shards, cartLocks, properties.rebalanceBatchSize());
+    }
+}
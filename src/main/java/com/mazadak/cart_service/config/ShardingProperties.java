@@ -0,0 +1,27 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * Cart sharding by consistent hash of the user id.
+ * @param shards connection settings of every shard; username and password default to {@code spring.datasource}
+ * @param ring shard names carts are hashed onto, all shards when empty
+ * @param previousRing the ring before the last change, set until the rebalancer has moved every cart
+ * @param virtualNodes points per shard on the hash ring
+ * @param rebalanceBatchSize carts moved per batch by the rebalancer
+ */
+@ConfigurationProperties(prefix = "cart.sharding")
+public record ShardingProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue List<Shard> shards,
+        @DefaultValue List<String> ring,
+        @DefaultValue List<String> previousRing,
+        @DefaultValue("128") int virtualNodes,
+        @DefaultValue("100") int rebalanceBatchSize
+) {
+
+    public record Shard(String name, String url, String username, String password) { }
+}
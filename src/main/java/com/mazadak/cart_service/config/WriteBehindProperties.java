@@ -0,0 +1,25 @@
+package com.mazadak.cart_service.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for write-behind of cart item quantity changes. Only safe when the gateway routes each user
+ * to a single instance.
+ * @param flushInterval delay between two flushes of the buffered quantities to the database
+ * @param journalDir where the two journal files live; must survive restarts (a persistent volume) for the journal to be useful
+ * @param journalSize size of each journal file
+ * @param fsyncEachWrite force every journal record to disk before acknowledging the mutation
+ */
+@ConfigurationProperties(prefix = "cart.write-behind")
+public record WriteBehindProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("5ms") Duration flushInterval,
+        @DefaultValue("journal") Path journalDir,
+        @DefaultValue("64MB") DataSize journalSize,
+        @DefaultValue("false") boolean fsyncEachWrite
+) { }
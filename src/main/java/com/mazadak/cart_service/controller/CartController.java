@@ -1,36 +1,61 @@
 package com.mazadak.cart_service.controller;
 
+import com.mazadak.cart_service.bulkhead.Bulkhead;
+import com.mazadak.cart_service.bulkhead.Compartment;
+import com.mazadak.cart_service.cache.CartBodyCache;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.demand.ProductDemandCounters;
 import com.mazadak.cart_service.dto.request.AddItemRequest;
 import com.mazadak.cart_service.dto.request.UpdateItemRequest;
 import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
 import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.CartSummaryDTO;
 import com.mazadak.cart_service.dto.response.DetailedCartItemResponseDTO;
+import com.mazadak.cart_service.dto.response.ProductDemandDTO;
+import com.mazadak.cart_service.export.CartExporter;
 import com.mazadak.cart_service.service.CartService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
 @Validated
 @RestController
+@Bulkhead(Compartment.DATABASE)
 @RequestMapping("/carts")
 @RequiredArgsConstructor
 @Slf4j
 public class CartController {
     private final CartService cartService;
 
+    private final CartBodyCache bodyCache;
+
+    private final ProductDemandCounters productDemand;
+
+    private final CartExporter cartExporter;
+
+    private final ProductSnapshotCache productSnapshots;
+
     @PostMapping("/items")
+    @Bulkhead(Compartment.PRODUCT_CATALOG)
     public ResponseEntity<CartItemResponseDTO> addItem(
             @RequestHeader("X-User-Id")  @NotNull(message = "User ID is required") UUID userId,
             @Valid @RequestBody AddItemRequest addItemRequest) {
 
+        // Fetched here, outside the cart write lock and the transaction; addItem only reads the cache
+        productSnapshots.snapshotOf(addItemRequest.productId());
         return ResponseEntity.ok(cartService.addItem(userId, addItemRequest));
     }
 
@@ -52,10 +77,16 @@ public class CartController {
         return ResponseEntity.ok(cartService.updateItemQuantity(userId,productId, updateItemRequest));
     }
 
+    // Written straight from the body cache when it can serve the request, the null return tells MVC the response is done
     @GetMapping("/items")
     public ResponseEntity<List<CartItemResponseDTO>> getCartItems(
-            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId) {
+            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
 
+        if (bodyCache.serves(request)) {
+            bodyCache.write(userId, CartBodyCache.View.ITEMS, cartService.getCartSnapshot(userId), request, response);
+            return null;
+        }
         return ResponseEntity.ok(cartService.getCartItems(userId));
     }
 
@@ -77,11 +108,23 @@ public class CartController {
 
     @GetMapping
     public ResponseEntity<CartResponseDTO> getCart(
-            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId) {
+            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
 
+        if (bodyCache.serves(request)) {
+            bodyCache.write(userId, CartBodyCache.View.CART, cartService.getCartSnapshot(userId), request, response);
+            return null;
+        }
         return ResponseEntity.ok(cartService.getCart(userId));
     }
 
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummaryDTO> getCartSummary(
+            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId) {
+
+        return ResponseEntity.ok(cartService.getCartSummary(userId));
+    }
+
     @PostMapping("/activate")
     public ResponseEntity<Void> activateCart(
             @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId) {
@@ -99,6 +142,7 @@ public class CartController {
     }
 
     @GetMapping("items/detailed")
+    @Bulkhead(Compartment.PRODUCT_CATALOG)
     public ResponseEntity<List<DetailedCartItemResponseDTO>> getDetailedCartItems(
             @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId) {
 
@@ -110,4 +154,92 @@ public class CartController {
             @RequestHeader("X-User-Id") @NotNull UUID userId) {
         return ResponseEntity.ok(cartService.isActive(userId));
     }
+
+    @PostMapping("/merge")
+    public ResponseEntity<CartResponseDTO> mergeGuestCart(
+            @RequestHeader("X-User-Id") @NotNull(message = "User ID is required") UUID userId,
+            @RequestHeader("X-Guest-Id") @NotNull(message = "Guest ID is required") UUID guestId) {
+
+        return ResponseEntity.ok(cartService.mergeGuestCart(userId, guestId));
+    }
+
+    @PostMapping("/guest")
+    public ResponseEntity<CartResponseDTO> createGuestCart() {
+        return ResponseEntity.ok(cartService.createGuestCart(UUID.randomUUID()));
+    }
+
+    @GetMapping("/guest/items")
+    public ResponseEntity<List<CartItemResponseDTO>> getGuestCartItems(
+            @RequestHeader("X-Guest-Id") @NotNull(message = "Guest ID is required") UUID guestId) {
+
+        cartService.checkGuestCart(guestId);
+        return ResponseEntity.ok(cartService.getCartItems(guestId));
+    }
+
+    @PostMapping("/guest/items")
+    @Bulkhead(Compartment.PRODUCT_CATALOG)
+    public ResponseEntity<CartItemResponseDTO> addGuestItem(
+            @RequestHeader("X-Guest-Id") @NotNull(message = "Guest ID is required") UUID guestId,
+            @Valid @RequestBody AddItemRequest addItemRequest) {
+
+        cartService.checkGuestCart(guestId);
+        productSnapshots.snapshotOf(addItemRequest.productId());
+        return ResponseEntity.ok(cartService.addItem(guestId, addItemRequest));
+    }
+
+    @PutMapping("/guest/items/{productId}")
+    public ResponseEntity<CartItemResponseDTO> updateGuestItemQuantity(
+            @RequestHeader("X-Guest-Id") @NotNull(message = "Guest ID is required") UUID guestId,
+            @PathVariable @NotNull(message = "Product ID is required") UUID productId,
+            @Valid @RequestBody UpdateItemRequest updateItemRequest) {
+
+        cartService.checkGuestCart(guestId);
+        return ResponseEntity.ok(cartService.updateItemQuantity(guestId, productId, updateItemRequest));
+    }
+
+    @DeleteMapping("/guest/items/{productId}")
+    public ResponseEntity<Void> removeGuestItem(
+            @RequestHeader("X-Guest-Id") @NotNull(message = "Guest ID is required") UUID guestId,
+            @PathVariable @NotNull(message = "Product ID is required") UUID productId) {
+
+        cartService.checkGuestCart(guestId);
+        cartService.removeItem(guestId, productId);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Carts holding each of the given products, or the products in the most carts; counts trail changes by about a second
+    @GetMapping("/internal/product-demand")
+    @Bulkhead(Compartment.INTERNAL)
+    public ResponseEntity<List<ProductDemandDTO>> getProductDemand(
+            @RequestParam(required = false) List<UUID> productIds,
+            @Min(1) @Max(1000) @RequestParam(defaultValue = "100") int limit) {
+
+        if (productIds != null && !productIds.isEmpty()) {
+            return ResponseEntity.ok(productDemand.demandOf(productIds));
+        }
+        return ResponseEntity.ok(productDemand.topDemand(limit));
+    }
+
+    // Every cart as one JSON line, streamed from a cursor; resume a cut-short export with the last cartId as `after`
+    @GetMapping("/internal/export")
+    @Bulkhead(Compartment.INTERNAL)
+    public void exportCarts(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) String shard,
+            HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+        cartExporter.checkShard(shard);
+        boolean gzip = acceptsGzip(request);
+        response.setContentType("application/x-ndjson");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        cartExporter.export(shard, after, response.getOutputStream(), gzip);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.contains("gzip");
+    }
 }
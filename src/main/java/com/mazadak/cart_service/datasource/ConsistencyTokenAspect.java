@@ -0,0 +1,43 @@
+package com.mazadak.cart_service.datasource;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Returns the primary's WAL position after each cart mutation as a consistency token.
+ * Ordered outside the transaction advice so the position is read after commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@ConditionalOnProperty(prefix = "cart.read-replicas", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class ConsistencyTokenAspect {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @AfterReturning("@annotation(com.mazadak.cart_service.lock.CartWriteLock)")
+    public void issueToken() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)
+                || attributes.getResponse() == null) {
+            return;
+        }
+        try {
+            String lsn = jdbcTemplate.queryForObject("select pg_current_wal_lsn()::text", String.class);
+            attributes.getResponse().setHeader(ReadYourWrites.TOKEN_HEADER, lsn);
+        } catch (DataAccessException e) {
+            log.warn("could not read WAL position for consistency token", e);
+        }
+    }
+}
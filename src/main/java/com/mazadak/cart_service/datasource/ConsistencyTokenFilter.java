@@ -0,0 +1,39 @@
+package com.mazadak.cart_service.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Binds the consistency token a client sends back to the request thread for the routing data source.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cart.read-replicas", name = "enabled", havingValue = "true")
+@Slf4j
+public class ConsistencyTokenFilter extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String token = request.getHeader(ReadYourWrites.TOKEN_HEADER);
+        if (token != null) {
+            try {
+                ReadYourWrites.require(ReadYourWrites.parseLsn(token));
+            } catch (IllegalArgumentException e) {
+                log.debug("ignoring malformed consistency token {}", token);
+            }
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadYourWrites.clear();
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.mazadak.cart_service.datasource;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends read-only transactions to the replicas in round-robin and everything else to the primary.
+ * A replica is only used for a request carrying a consistency token once it has replayed past it;
+ * when none has, the read falls back to the primary.
+ */
+@Slf4j
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    static final String PRIMARY = "primary";
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final long lagCheckIntervalNanos;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicaPools, Duration lagCheckInterval) {
+        this.lagCheckIntervalNanos = lagCheckInterval.toNanos();
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        for (DataSource pool : replicaPools) {
+            Replica replica = new Replica("replica-" + replicas.size(), pool);
+            targets.put(replica.key, pool);
+            replicas.add(replica);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return PRIMARY;
+        }
+        long requiredLsn = ReadYourWrites.requiredLsn();
+        int start = Math.floorMod(next.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.hasReplayed(requiredLsn)) {
+                return replica.key;
+            }
+        }
+        return PRIMARY;
+    }
+
+    private final class Replica {
+
+        private final String key;
+
+        private final DataSource pool;
+
+        private final AtomicLong replayedLsn = new AtomicLong(ReadYourWrites.NONE);
+
+        private final AtomicLong checkedAt = new AtomicLong(System.nanoTime() - lagCheckIntervalNanos);
+
+        private Replica(String key, DataSource pool) {
+            this.key = key;
+            this.pool = pool;
+        }
+
+        private boolean hasReplayed(long lsn) {
+            if (lsn == ReadYourWrites.NONE || lsn <= replayedLsn.get()) {
+                return true;
+            }
+            // Only one caller re-queries a lagging replica per interval, the rest go elsewhere
+            long now = System.nanoTime();
+            long last = checkedAt.get();
+            if (now - last < lagCheckIntervalNanos || !checkedAt.compareAndSet(last, now)) {
+                return false;
+            }
+            try (Connection connection = pool.getConnection();
+                 Statement statement = connection.createStatement();
+                 ResultSet resultSet = statement.executeQuery("select pg_last_wal_replay_lsn()::text")) {
+                resultSet.next();
+                String replayed = resultSet.getString(1);
+                // null when the node is not in recovery, i.e. it is not lagging behind anything
+                replayedLsn.set(replayed != null ? ReadYourWrites.parseLsn(replayed) : Long.MAX_VALUE);
+            } catch (SQLException e) {
+                log.warn("could not read replay position of {}", key, e);
+                return false;
+            }
+            return lsn <= replayedLsn.get();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.mazadak.cart_service.datasource;
+
+/**
+ * Holds the WAL position a request's reads must observe.
+ * Clients echo the {@link #TOKEN_HEADER} returned by a mutation on their next reads, and replicas that
+ * have not replayed up to it are skipped for that request.
+ */
+public final class ReadYourWrites {
+
+    public static final String TOKEN_HEADER = "X-Cart-Consistency-Token";
+
+    public static final long NONE = -1;
+
+    private static final ThreadLocal<Long> REQUIRED_LSN = new ThreadLocal<>();
+
+    private ReadYourWrites() { }
+
+    public static void require(long lsn) {
+        REQUIRED_LSN.set(lsn);
+    }
+
+    public static long requiredLsn() {
+        Long lsn = REQUIRED_LSN.get();
+        return lsn != null ? lsn : NONE;
+    }
+
+    public static void clear() {
+        REQUIRED_LSN.remove();
+    }
+
+    /**
+     * Parses a Postgres {@code pg_lsn} such as {@code 16/B374D848} into its 64-bit position.
+     */
+    public static long parseLsn(String lsn) {
+        int slash = lsn.indexOf('/');
+        if (slash < 1) {
+            throw new IllegalArgumentException("Invalid WAL position: " + lsn);
+        }
+        return Long.parseUnsignedLong(lsn.substring(0, slash), 16) << 32
+                | Long.parseUnsignedLong(lsn.substring(slash + 1), 16);
+    }
+}
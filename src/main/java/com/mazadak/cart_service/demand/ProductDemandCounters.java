@@ -0,0 +1,221 @@
+package com.mazadak.cart_service.demand;
+
+import com.mazadak.cart_service.config.ProductDemandProperties;
+import com.mazadak.cart_service.dto.response.ProductDemandDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the carts holding each product.
+ * <p>
+ * Cart mutations add to in-memory deltas once they commit; a background flush adds the deltas to this
+ * instance's stripe row of each product, so instances do not queue on the row of a popular product and
+ * requests never wait on the counters. A lost flush, a crash, or a change not counted here (merging
+ * carts) leaves the counts off until the next reconciliation recomputes them from the cart items.
+ */
+@Component
+@Slf4j
+public class ProductDemandCounters implements SmartLifecycle {
+
+    private final ProductDemandProperties properties;
+
+    private final ProductDemandStore store;
+
+    private final int stripe;
+
+    private final Map<UUID, Long> deltas = new ConcurrentHashMap<>();
+
+    private final Counter flushFailures;
+
+    private ScheduledExecutorService scheduler;
+
+    private volatile boolean running;
+
+    public ProductDemandCounters(ProductDemandProperties properties, ProductDemandStore store,
+                                 MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.stripe = ThreadLocalRandom.current().nextInt(Math.max(1, properties.stripes()));
+        this.flushFailures = Counter.builder("cart.product.demand.flush.failures")
+                .description("Counter flushes that failed and were kept for the next attempt")
+                .register(meterRegistry);
+        Gauge.builder("cart.product.demand.pending", deltas, Map::size)
+                .description("Products with counter changes waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one more cart holding the product once the current transaction commits.
+     */
+    public void added(UUID productId) {
+        change(List.of(productId), 1);
+    }
+
+    /**
+     * Counts one cart fewer for each product once the current transaction commits.
+     */
+    public void removed(Collection<UUID> productIds) {
+        change(productIds, -1);
+    }
+
+    public List<ProductDemandDTO> demandOf(Collection<UUID> productIds) {
+        return store.find(productIds);
+    }
+
+    /**
+     * @return the products in the most carts, most first
+     */
+    public List<ProductDemandDTO> topDemand(int limit) {
+        return store.findTop(limit);
+    }
+
+    /**
+     * Writes the deltas counted so far. Deltas that could not be written are kept for the next flush.
+     */
+    public synchronized void flush() {
+        Map<UUID, Long> batch = new HashMap<>();
+        for (UUID productId : deltas.keySet()) {
+            Long delta = deltas.remove(productId);
+            if (delta != null && delta != 0) {
+                batch.put(productId, delta);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<UUID, Long> missing;
+        try {
+            missing = store.add(stripe, batch);
+        } catch (RuntimeException e) {
+            restore(batch);
+            throw e;
+        }
+        if (!missing.isEmpty()) {
+            try {
+                store.insert(stripe, missing);
+            } catch (DuplicateKeyException e) {
+                // Created by a reconciliation meanwhile, the next flush adds to it
+                restore(missing);
+            } catch (RuntimeException e) {
+                restore(missing);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Recomputes every counter from the cart items.
+     * Changes committed while it runs may be counted twice or not at all until the next one.
+     */
+    public void reconcile() {
+        long start = System.nanoTime();
+        Map<UUID, Long> counts = store.countCartItems();
+        store.replace(counts);
+        log.info("reconciled product demand of {} products in {} ms", counts.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public void start() {
+        if (properties.enabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("product-demand").daemon().factory());
+            long flushInterval = properties.flushInterval().toNanos();
+            long reconcileInterval = properties.reconcileInterval().toNanos();
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.NANOSECONDS);
+            scheduler.execute(this::reconcileIfEmpty);
+            scheduler.scheduleWithFixedDelay(this::reconcileQuietly, reconcileInterval, reconcileInterval, TimeUnit.NANOSECONDS);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("final product demand flush failed, reconciliation will correct the counts", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void change(Collection<UUID> productIds, long delta) {
+        if (!properties.enabled() || productIds.isEmpty()) {
+            return;
+        }
+        Runnable count = () -> productIds.forEach(productId -> deltas.merge(productId, delta, Long::sum));
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            count.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                count.run();
+            }
+        });
+    }
+
+    private void restore(Map<UUID, Long> batch) {
+        batch.forEach((productId, delta) -> deltas.merge(productId, delta, Long::sum));
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            log.warn("product demand flush failed, retrying on the next tick", e);
+        }
+    }
+
+    // A first start against an empty table should not wait a whole interval for counts
+    private void reconcileIfEmpty() {
+        try {
+            if (store.isEmpty()) {
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.warn("initial product demand reconciliation failed", e);
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            reconcile();
+        } catch (DuplicateKeyException e) {
+            log.info("product demand was reconciled by another instance meanwhile");
+        } catch (RuntimeException e) {
+            log.warn("product demand reconciliation failed, retrying on the next tick", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.mazadak.cart_service.demand;
+
+import com.mazadak.cart_service.dto.response.ProductDemandDTO;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Reads and writes the {@code product_demand} rows. With sharding they live on the default shard,
+ * while the cart items they are reconciled against are counted on every shard.
+ */
+@Component
+class ProductDemandStore {
+
+    private static final String ADD =
+            "UPDATE product_demand SET carts = carts + :delta WHERE product_id = :productId AND stripe = :stripe";
+
+    private static final String INSERT =
+            "INSERT INTO product_demand (product_id, stripe, carts) VALUES (:productId, :stripe, :delta)";
+
+    // Every cart, guest and inactive ones included, as cart mutations count them
+    private static final String COUNT_ITEMS =
+            "SELECT product_id, COUNT(*) AS carts FROM cart_item GROUP BY product_id";
+
+    private static final String SELECT_PRODUCTS =
+            "SELECT product_id, SUM(carts) AS carts FROM product_demand WHERE product_id IN (:productIds) GROUP BY product_id";
+
+    private static final String SELECT_TOP =
+            "SELECT product_id, SUM(carts) AS carts FROM product_demand GROUP BY product_id ORDER BY carts DESC LIMIT :limit";
+
+    private static final RowMapper<ProductDemandDTO> DEMAND = (rs, rowNum) ->
+            new ProductDemandDTO(rs.getObject("product_id", UUID.class), rs.getLong("carts"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final ObjectProvider<ShardDataSources> shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    ProductDemandStore(NamedParameterJdbcTemplate jdbcTemplate, ObjectProvider<ShardDataSources> shards,
+                       PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Adds the deltas to this instance's stripe of each product in one transaction.
+     * @return the deltas of products that had no row for the stripe yet, left for {@link #insert}
+     */
+    Map<UUID, Long> add(int stripe, Map<UUID, Long> deltas) {
+        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(deltas.entrySet());
+        int[] updated = onDefaultShard(() -> transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate(ADD, params(stripe, entries))));
+        Map<UUID, Long> missing = new HashMap<>();
+        for (int i = 0; i < entries.size(); i++) {
+            if (updated[i] == 0) {
+                missing.put(entries.get(i).getKey(), entries.get(i).getValue());
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Creates the stripe rows of products first seen by this instance.
+     * Fails with a duplicate key if another writer created one of them meanwhile.
+     */
+    void insert(int stripe, Map<UUID, Long> deltas) {
+        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(deltas.entrySet());
+        onDefaultShard(() -> transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate(INSERT, params(stripe, entries))));
+    }
+
+    boolean isEmpty() {
+        return onDefaultShard(() -> readOnlyTemplate.execute(status ->
+                jdbcTemplate.getJdbcTemplate().queryForList("SELECT 1 FROM product_demand LIMIT 1").isEmpty()));
+    }
+
+    /**
+     * Counts the cart items of every product, on every shard.
+     */
+    Map<UUID, Long> countCartItems() {
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        Collection<String> names = shardDataSources == null ? List.of() : shardDataSources.names();
+        Map<UUID, Long> counts = new HashMap<>();
+        if (names.isEmpty()) {
+            countInto(counts);
+        }
+        for (String shard : names) {
+            ShardContext.callOn(shard, () -> countInto(counts));
+        }
+        return counts;
+    }
+
+    /**
+     * Replaces every counter by the given counts, kept on stripe 0.
+     * Of two replacements running together, the later one fails on a duplicate key and changes nothing.
+     */
+    void replace(Map<UUID, Long> counts) {
+        List<Map.Entry<UUID, Long>> entries = new ArrayList<>(counts.entrySet());
+        onDefaultShard(() -> transactionTemplate.execute(status -> {
+            jdbcTemplate.getJdbcTemplate().update("DELETE FROM product_demand");
+            return jdbcTemplate.batchUpdate(INSERT, params(0, entries));
+        }));
+    }
+
+    List<ProductDemandDTO> find(Collection<UUID> productIds) {
+        return onDefaultShard(() -> readOnlyTemplate.execute(status ->
+                jdbcTemplate.query(SELECT_PRODUCTS, Map.of("productIds", productIds), DEMAND)));
+    }
+
+    List<ProductDemandDTO> findTop(int limit) {
+        return onDefaultShard(() -> readOnlyTemplate.execute(status ->
+                jdbcTemplate.query(SELECT_TOP, Map.of("limit", limit), DEMAND)));
+    }
+
+    private Void countInto(Map<UUID, Long> counts) {
+        readOnlyTemplate.executeWithoutResult(status -> jdbcTemplate.getJdbcTemplate().query(COUNT_ITEMS, rs -> {
+            counts.merge(rs.getObject("product_id", UUID.class), rs.getLong("carts"), Long::sum);
+        }));
+        return null;
+    }
+
+    private <T> T onDefaultShard(Supplier<T> action) {
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        return shardDataSources == null ? action.get() : ShardContext.callOn(shardDataSources.defaultShard(), action);
+    }
+
+    private static MapSqlParameterSource[] params(int stripe, List<Map.Entry<UUID, Long>> entries) {
+        return entries.stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("productId", entry.getKey())
+                        .addValue("stripe", stripe)
+                        .addValue("delta", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+    }
+}
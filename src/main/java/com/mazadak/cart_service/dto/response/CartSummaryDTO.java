@@ -0,0 +1,15 @@
+package com.mazadak.cart_service.dto.response;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * @param complete false when some items had no known price and are missing from the subtotal
+ */
+public record CartSummaryDTO(
+        UUID cartId,
+        int itemCount,
+        int distinctProducts,
+        BigDecimal subtotal,
+        boolean complete
+) { }
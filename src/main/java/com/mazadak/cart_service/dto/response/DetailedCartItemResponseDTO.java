@@ -1,16 +1,19 @@
 package com.mazadak.cart_service.dto.response;
 
-import com.mazadak.cart_service.dto.entity.ProductImageDTO;
-
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.UUID;
 
+/**
+ * @param availableQuantity units in stock, null when inventory could not be reached
+ * @param inStock whether the stock covers the cart quantity, null when unknown
+ */
 public record DetailedCartItemResponseDTO (
     UUID productId,
     int quantity,
     String title,
     String description,
     BigDecimal price,
-    String primaryImage
+    String primaryImage,
+    Integer availableQuantity,
+    Boolean inStock
  ) { }
@@ -0,0 +1,8 @@
+package com.mazadak.cart_service.dto.response;
+
+import java.util.UUID;
+
+public record ProductDemandDTO(
+        UUID productId,
+        long carts
+) { }
@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.dto.response;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.mazadak.cart_service.client.ProductSummaryDeserializer;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * The part of a product-catalog product that a cart renders.
+ * Decoded straight from the batch response, the image list is reduced to the primary image while parsing.
+ */
+@JsonDeserialize(using = ProductSummaryDeserializer.class)
+public record ProductSummaryDTO(
+        UUID productId,
+        String title,
+        String description,
+        BigDecimal price,
+        String primaryImage
+) { }
@@ -0,0 +1,8 @@
+package com.mazadak.cart_service.dto.response;
+
+import java.util.UUID;
+
+public record StockAvailabilityDTO(
+        UUID productId,
+        int availableQuantity
+) { }
@@ -0,0 +1,117 @@
+package com.mazadak.cart_service.events;
+
+import com.mazadak.cart_service.cache.CartCache;
+import com.mazadak.cart_service.demand.ProductDemandCounters;
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Removes products from every cart holding them, a chunk of products per statement, on every shard.
+ */
+@Component
+class CartItemPurger {
+
+    private static final int TOTALS_CHUNK = 1000;
+
+    // Returns exactly the items it deleted, so the totals refreshed are those of the carts that held them
+    private static final String DELETE_ITEMS = """
+            WITH removed AS (
+                DELETE FROM cart_item WHERE product_id = ANY(?) RETURNING product_id, cart_id
+            )
+            SELECT removed.product_id, carts.user_id FROM removed JOIN carts ON carts.cart_id = removed.cart_id
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final CartRepository cartRepository;
+
+    private final CartCache cartCache;
+
+    private final ProductDemandCounters productDemand;
+
+    private final ObjectProvider<ShardDataSources> shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    CartItemPurger(JdbcTemplate jdbcTemplate, CartRepository cartRepository, CartCache cartCache,
+                   ProductDemandCounters productDemand, ObjectProvider<ShardDataSources> shards,
+                   PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cartRepository = cartRepository;
+        this.cartCache = cartCache;
+        this.productDemand = productDemand;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The delete reports the items it removed itself, so nothing has to stay as it was read; a concurrent
+        // cart change is waited for rather than failing the purge as a serialization conflict
+        this.transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * Deletes the products' cart items and recomputes the totals of the carts that held them.
+     * Deleting again is harmless, so a redelivered event only costs the lookup.
+     * @return the number of cart items removed
+     */
+    int purge(Collection<UUID> productIds, int chunkSize) {
+        List<UUID> ids = List.copyOf(productIds);
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        Collection<String> names = shardDataSources == null ? List.of() : shardDataSources.names();
+        int removed = 0;
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<UUID> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            if (names.isEmpty()) {
+                removed += purgeChunk(chunk);
+            }
+            for (String shard : names) {
+                removed += ShardContext.callOn(shard, () -> purgeChunk(chunk));
+            }
+        }
+        return removed;
+    }
+
+    private int purgeChunk(List<UUID> productIds) {
+        Integer removed = transactionTemplate.execute(status -> {
+            List<UUID> removedProducts = new ArrayList<>();
+            Set<UUID> userIds = new HashSet<>();
+            jdbcTemplate.query(withProducts(DELETE_ITEMS, productIds), rs -> {
+                removedProducts.add(rs.getObject("product_id", UUID.class));
+                userIds.add(rs.getObject("user_id", UUID.class));
+            });
+            if (removedProducts.isEmpty()) {
+                return 0;
+            }
+            List<UUID> users = new ArrayList<>(userIds);
+            for (int from = 0; from < users.size(); from += TOTALS_CHUNK) {
+                cartRepository.refreshTotals(users.subList(from, Math.min(from + TOTALS_CHUNK, users.size())));
+            }
+            users.forEach(cartCache::invalidate);
+            productDemand.removed(removedProducts);
+            return removedProducts.size();
+        });
+        return removed != null ? removed : 0;
+    }
+
+    private static PreparedStatementCreator withProducts(String sql, List<UUID> productIds) {
+        return connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("uuid", productIds.toArray()));
+            return statement;
+        };
+    }
+}
@@ -0,0 +1,22 @@
+package com.mazadak.cart_service.events;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * The part of a product event the cart service needs. Deleted-product and closed-auction events only
+ * need the id; product-updated events carry the product as it now renders in a cart.
+ * @param updatedAt when the product changed, the record timestamp is used when absent
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record ProductEvent(
+        UUID productId,
+        String title,
+        String description,
+        BigDecimal price,
+        String primaryImage,
+        Instant updatedAt
+) { }
@@ -0,0 +1,157 @@
+package com.mazadak.cart_service.events;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.config.ProductEventsProperties;
+import com.mazadak.cart_service.model.ProductSnapshot;
+import com.mazadak.cart_service.snapshot.ProductSnapshotWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Takes deleted products and products of closed auctions out of every cart, and copies product changes
+ * to the snapshots stored on the cart items.
+ * <p>
+ * Records are consumed in batches from the broker the bus already uses, and the products of a whole
+ * batch are handled together, so a burst of events costs a few set-based statements rather than one per
+ * event. Offsets are committed once the batch is applied; a failed batch is retried and then published
+ * to the dead-letter topics (see {@link com.mazadak.cart_service.config.ProductEventsConfig}).
+ */
+@Component
+@Slf4j
+public class ProductEventsListener {
+
+    private final CartItemPurger purger;
+
+    private final ProductSnapshotWriter snapshotWriter;
+
+    private final ProductSnapshotCache productSnapshots;
+
+    private final ObjectMapper objectMapper;
+
+    private final int chunkSize;
+
+    private final MeterRegistry meterRegistry;
+
+    private final Counter itemsRemoved;
+
+    private final Counter snapshotsRefreshed;
+
+    private final Counter invalidEvents;
+
+    private final Timer batchTimer;
+
+    public ProductEventsListener(CartItemPurger purger, ProductSnapshotWriter snapshotWriter,
+                                 ProductSnapshotCache productSnapshots, ObjectMapper objectMapper,
+                                 ProductEventsProperties properties, MeterRegistry meterRegistry) {
+        this.purger = purger;
+        this.snapshotWriter = snapshotWriter;
+        this.productSnapshots = productSnapshots;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, properties.chunkSize());
+        this.meterRegistry = meterRegistry;
+        this.itemsRemoved = Counter.builder("cart.product.events.items.removed")
+                .description("Cart items removed because their product was deleted or its auction closed")
+                .register(meterRegistry);
+        this.snapshotsRefreshed = Counter.builder("cart.product.events.snapshots.refreshed")
+                .description("Cart item snapshots replaced by a newer product state from an event")
+                .register(meterRegistry);
+        this.invalidEvents = Counter.builder("cart.product.events.invalid")
+                .description("Product events skipped because they carried no readable product id")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("cart.product.events.batch")
+                .description("Time to apply one batch of product events to all carts")
+                .register(meterRegistry);
+    }
+
+    @KafkaListener(
+            id = "product-events",
+            topics = {"${cart.product-events.product-deleted-topic:product-deleted}",
+                    "${cart.product-events.auction-closed-topic:auction-closed}"},
+            groupId = "${cart.product-events.group-id:cart-service}",
+            batch = "true",
+            autoStartup = "${cart.product-events.enabled:false}")
+    public void onEvents(List<ConsumerRecord<String, String>> records) {
+        Set<UUID> productIds = new LinkedHashSet<>();
+        for (ConsumerRecord<String, String> record : records) {
+            ProductEvent event = read(record);
+            if (event != null) {
+                productIds.add(event.productId());
+            }
+        }
+        if (productIds.isEmpty()) {
+            return;
+        }
+        int removed = batchTimer.record(() -> purger.purge(productIds, chunkSize));
+        itemsRemoved.increment(removed);
+        log.info("removed {} cart items of {} products from {} events", removed, productIds.size(), records.size());
+    }
+
+    /**
+     * Keeps the latest state of each product in the batch and writes it to the cart items still
+     * holding an older one.
+     */
+    @KafkaListener(
+            id = "product-updates",
+            topics = "${cart.product-events.product-updated-topic:product-updated}",
+            groupId = "${cart.product-events.group-id:cart-service}",
+            batch = "true",
+            autoStartup = "${cart.product-events.enabled:false}")
+    public void onUpdates(List<ConsumerRecord<String, String>> records) {
+        Map<UUID, ProductSnapshot> snapshots = new LinkedHashMap<>();
+        long takenAt = System.currentTimeMillis();
+        for (ConsumerRecord<String, String> record : records) {
+            ProductEvent event = read(record);
+            if (event == null) {
+                continue;
+            }
+            long version = event.updatedAt() != null ? event.updatedAt().toEpochMilli() : record.timestamp();
+            ProductSnapshot snapshot = new ProductSnapshot(event.title(), event.description(), event.price(),
+                    event.primaryImage(), version, takenAt);
+            snapshots.merge(event.productId(), snapshot,
+                    (current, next) -> next.isNewerThan(current.version()) ? next : current);
+        }
+        if (snapshots.isEmpty()) {
+            return;
+        }
+        snapshots.forEach(productSnapshots::refresh);
+        int refreshed = batchTimer.record(() -> snapshotWriter.writeEverywhere(snapshots, chunkSize));
+        snapshotsRefreshed.increment(refreshed);
+        log.info("refreshed {} cart item snapshots of {} products from {} events",
+                refreshed, snapshots.size(), records.size());
+    }
+
+    /**
+     * @return the event, or null if it has no readable product id
+     */
+    private ProductEvent read(ConsumerRecord<String, String> record) {
+        ProductEvent event = null;
+        if (record.value() != null) {
+            try {
+                event = objectMapper.readValue(record.value(), ProductEvent.class);
+            } catch (JsonProcessingException e) {
+                log.warn("skipping unreadable event at {}-{}@{}: {}",
+                        record.topic(), record.partition(), record.offset(), e.getOriginalMessage());
+            }
+        }
+        if (event == null || event.productId() == null) {
+            invalidEvents.increment();
+            return null;
+        }
+        meterRegistry.counter("cart.product.events", "topic", record.topic()).increment();
+        return event;
+    }
+}
@@ -0,0 +1,12 @@
+package com.mazadak.cart_service.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.CONFLICT)
+public class CartBusyException extends RuntimeException {
+
+    public CartBusyException(String message) {
+        super(message);
+    }
+}
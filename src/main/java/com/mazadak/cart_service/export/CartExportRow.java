@@ -0,0 +1,24 @@
+package com.mazadak.cart_service.export;
+
+import com.mazadak.cart_service.model.enums.Status;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One cart item joined with its cart, or a cart without items with null item columns.
+ * A projection, so the persistence context keeps nothing of the rows streamed.
+ */
+public record CartExportRow(
+        UUID cartId,
+        UUID userId,
+        Status status,
+        boolean guest,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        UUID itemId,
+        UUID productId,
+        Integer quantity,
+        BigDecimal unitPrice
+) { }
@@ -0,0 +1,166 @@
+package com.mazadak.cart_service.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes carts with their items as newline-delimited JSON, one cart per line in cart id order.
+ * <p>
+ * Rows come from a database cursor and each line is written as soon as its cart's rows are read,
+ * so memory stays flat whatever the size of the table. An export cut short can be resumed by passing
+ * the id of the last complete line as {@code after}.
+ */
+@Component
+@Slf4j
+public class CartExporter {
+
+    // Carts written between flushes of the output, so a slow client still sees progress
+    private static final int FLUSH_EVERY = 1000;
+
+    private static final int GZIP_BUFFER = 64 * 1024;
+
+    private static final UUID FIRST = new UUID(0, 0);
+
+    private final CartRepository cartRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ObjectProvider<ShardDataSources> shards;
+
+    private final TransactionTemplate readOnlyTemplate;
+
+    public CartExporter(CartRepository cartRepository, ObjectMapper objectMapper,
+                        ObjectProvider<ShardDataSources> shards, PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.objectMapper = objectMapper;
+        this.shards = shards;
+        this.readOnlyTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Checks the shard parameter of an export, for callers that must reject it before writing response headers.
+     * @throws IllegalArgumentException for an unknown shard, or a shard given without sharding enabled
+     */
+    public void checkShard(String shard) {
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        if (shardDataSources == null) {
+            if (shard != null) {
+                throw new IllegalArgumentException("Sharding is not enabled");
+            }
+        } else if (shard != null) {
+            shardDataSources.get(shard);
+        }
+    }
+
+    /**
+     * @param shard the shard to export with sharding enabled, the default one if null
+     * @param after exclusive cart id to start from, or null for all carts
+     * @param gzip whether to compress what is written to {@code out}
+     * @return the number of carts written
+     * @throws IllegalArgumentException for an unknown shard, before anything is written
+     */
+    public long export(String shard, UUID after, OutputStream out, boolean gzip) {
+        checkShard(shard);
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        if (shardDataSources == null) {
+            return export(after, out, gzip);
+        }
+        String target = shard != null ? shard : shardDataSources.defaultShard();
+        return ShardContext.callOn(target, () -> export(after, out, gzip));
+    }
+
+    private long export(UUID after, OutputStream out, boolean gzip) {
+        long start = System.nanoTime();
+        Long carts = readOnlyTemplate.execute(status -> {
+            try (Stream<CartExportRow> rows = cartRepository.streamForExport(after != null ? after : FIRST)) {
+                if (!gzip) {
+                    return write(rows.iterator(), out);
+                }
+                GZIPOutputStream compressed = new GZIPOutputStream(out, GZIP_BUFFER, true);
+                long written = write(rows.iterator(), compressed);
+                compressed.finish();
+                return written;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        log.info("exported {} carts after {} in {} ms", carts, after, (System.nanoTime() - start) / 1_000_000);
+        return carts;
+    }
+
+    private long write(Iterator<CartExportRow> rows, OutputStream out) throws IOException {
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines end in a newline written after each cart, not in a separator before the next
+            json.setRootValueSeparator(null);
+            long carts = 0;
+            UUID current = null;
+            while (rows.hasNext()) {
+                CartExportRow row = rows.next();
+                if (!row.cartId().equals(current)) {
+                    if (current != null) {
+                        endCart(json);
+                        if (++carts % FLUSH_EVERY == 0) {
+                            json.flush();
+                        }
+                    }
+                    startCart(json, row);
+                    current = row.cartId();
+                }
+                if (row.itemId() != null) {
+                    writeItem(json, row);
+                }
+            }
+            if (current != null) {
+                endCart(json);
+                carts++;
+            }
+            return carts;
+        }
+    }
+
+    private void startCart(JsonGenerator json, CartExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("cartId", row.cartId().toString());
+        json.writeStringField("userId", row.userId().toString());
+        json.writeStringField("status", row.status().name());
+        json.writeBooleanField("guest", row.guest());
+        json.writeStringField("createdAt", String.valueOf(row.createdAt()));
+        json.writeStringField("updatedAt", String.valueOf(row.updatedAt()));
+        json.writeArrayFieldStart("items");
+    }
+
+    private void writeItem(JsonGenerator json, CartExportRow row) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("itemId", row.itemId().toString());
+        json.writeStringField("productId", row.productId().toString());
+        json.writeNumberField("quantity", row.quantity());
+        if (row.unitPrice() != null) {
+            json.writeNumberField("unitPrice", row.unitPrice());
+        }
+        json.writeEndObject();
+    }
+
+    private void endCart(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+}
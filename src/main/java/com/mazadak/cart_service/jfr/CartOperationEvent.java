@@ -0,0 +1,38 @@
+package com.mazadak.cart_service.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("com.mazadak.cart.Operation")
+@Label("Cart Operation")
+@Category({"Mazadak", "Cart"})
+@Description("A CartService call with the time it spent in the database and in product-catalog")
+@StackTrace(false)
+public class CartOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("User Id Hash")
+    int userIdHash;
+
+    @Label("Item Count")
+    @Description("Items returned by the operation, -1 when it returns none")
+    int itemCount;
+
+    @Label("Database Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long dbTime;
+
+    @Label("Product Client Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long productClientTime;
+
+    @Label("Failed")
+    boolean failed;
+}
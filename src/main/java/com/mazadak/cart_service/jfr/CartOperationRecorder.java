@@ -0,0 +1,111 @@
+package com.mazadak.cart_service.jfr;
+
+import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Emits a {@link CartOperationEvent} per CartService call while a recording has the event enabled.
+ * Repository and ProductClient calls made during the operation are timed into the event;
+ * when no recording is running every advice just proceeds.
+ */
+@Aspect
+@Component
+public class CartOperationRecorder {
+
+    private static final ThreadLocal<Timings> CURRENT = new ThreadLocal<>();
+
+    @Around("execution(public * com.mazadak.cart_service.service.CartService+.*(..))")
+    public Object recordOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        CartOperationEvent event = new CartOperationEvent();
+        if (!event.isEnabled() || CURRENT.get() != null) {
+            return joinPoint.proceed();
+        }
+
+        Timings timings = new Timings();
+        CURRENT.set(timings);
+        event.begin();
+        Object result = null;
+        try {
+            result = joinPoint.proceed();
+            return result;
+        } catch (Throwable t) {
+            event.failed = true;
+            throw t;
+        } finally {
+            CURRENT.remove();
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = joinPoint.getSignature().getName();
+                event.userIdHash = userIdHash(joinPoint.getArgs());
+                event.itemCount = itemCount(result);
+                event.dbTime = timings.db;
+                event.productClientTime = timings.productClient;
+                event.commit();
+            }
+        }
+    }
+
+    @Around("target(org.springframework.data.repository.Repository)")
+    public Object recordDatabaseCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timings timings = CURRENT.get();
+        if (timings == null) {
+            return joinPoint.proceed();
+        }
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timings.db += System.nanoTime() - start;
+        }
+    }
+
+    // Batch fetches run their calls on other threads, so they are timed as a whole on this one
+    @Around("target(com.mazadak.cart_service.client.ProductClient) "
+            + "|| execution(* com.mazadak.cart_service.client.ProductBatchFetcher.fetch(..))")
+    public Object recordProductClientCall(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timings timings = CURRENT.get();
+        if (timings == null || timings.inProductClient) {
+            return joinPoint.proceed();
+        }
+        timings.inProductClient = true;
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timings.productClient += System.nanoTime() - start;
+            timings.inProductClient = false;
+        }
+    }
+
+    private int userIdHash(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof UUID userId) {
+                return userId.hashCode();
+            }
+        }
+        return 0;
+    }
+
+    private int itemCount(Object result) {
+        if (result instanceof Collection<?> items) {
+            return items.size();
+        }
+        if (result instanceof CartResponseDTO cart && cart.cartItems() != null) {
+            return cart.cartItems().size();
+        }
+        return -1;
+    }
+
+    private static final class Timings {
+        long db;
+        long productClient;
+        // Set while a fetch is timed, so the calls it makes on this thread are not counted twice
+        boolean inProductClient;
+    }
+}
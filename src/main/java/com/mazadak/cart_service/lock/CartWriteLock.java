@@ -0,0 +1,20 @@
+package com.mazadak.cart_service.lock;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a cart mutation that must run alone for its user.
+ * The first {@link java.util.UUID} argument of the method is taken as the user id.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CartWriteLock {
+
+    /**
+     * Number of leading {@link java.util.UUID} arguments whose carts the method writes, all locked together.
+     */
+    int carts() default 1;
+}
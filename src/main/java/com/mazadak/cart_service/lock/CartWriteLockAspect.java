@@ -0,0 +1,69 @@
+package com.mazadak.cart_service.lock;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.exception.CartBusyException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes {@link CartWriteLock} methods per user; a method writing several carts holds all of their locks.
+ * Runs ahead of the transaction advice so the lock is only released after commit.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+@Slf4j
+public class CartWriteLockAspect {
+
+    private final StripedCartLocks cartLocks;
+
+    private final CartWriteLockProperties properties;
+
+    @Around("@annotation(com.mazadak.cart_service.lock.CartWriteLock)")
+    public Object serialize(ProceedingJoinPoint joinPoint) throws Throwable {
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        CartWriteLock cartWriteLock = AnnotatedElementUtils.findMergedAnnotation(signature.getMethod(), CartWriteLock.class);
+        List<UUID> userIds = findUserIds(joinPoint.getArgs(), cartWriteLock.carts());
+        if (!properties.enabled() || userIds.isEmpty()) {
+            return joinPoint.proceed();
+        }
+
+        List<ReentrantLock> locks = cartLocks.acquireAll(userIds);
+        if (locks == null) {
+            log.warn("timed out waiting for cart write lock for users {}", userIds);
+            throw new CartBusyException("Cart is being updated by another request, please retry");
+        }
+        try {
+            return joinPoint.proceed();
+        } finally {
+            locks.reversed().forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private List<UUID> findUserIds(Object[] args, int carts) {
+        List<UUID> userIds = new ArrayList<>(carts);
+        for (Object arg : args) {
+            if (userIds.size() == carts) {
+                break;
+            }
+            if (arg instanceof UUID uuid) {
+                userIds.add(uuid);
+            }
+        }
+        return userIds;
+    }
+}
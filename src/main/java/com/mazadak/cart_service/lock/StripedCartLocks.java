@@ -0,0 +1,104 @@
+package com.mazadak.cart_service.lock;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed pool of locks shared by all carts.
+ * A user always maps to the same stripe, so writes to one cart are serialized
+ * while carts on other stripes proceed in parallel.
+ */
+@Component
+public class StripedCartLocks {
+
+    private final ReentrantLock[] locks;
+
+    private final int mask;
+
+    private final long timeoutNanos;
+
+    private final Timer waitTimer;
+
+    private final Counter contendedCounter;
+
+    private final Counter timeoutCounter;
+
+    public StripedCartLocks(CartWriteLockProperties properties, MeterRegistry meterRegistry) {
+        int stripes = Integer.highestOneBit(Math.max(1, properties.stripes() - 1)) << 1;
+        this.locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        this.mask = stripes - 1;
+        this.timeoutNanos = properties.timeout().toNanos();
+        this.waitTimer = Timer.builder("cart.write.lock.wait")
+                .description("Time spent waiting for a cart write lock")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.contendedCounter = Counter.builder("cart.write.lock.contended")
+                .description("Cart write lock acquisitions that had to wait")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("cart.write.lock.timeouts")
+                .description("Cart write lock acquisitions that gave up waiting")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Acquires the lock for the user's cart.
+     * @param userId owner of the cart
+     * @return the held lock, or null if it could not be acquired in time
+     */
+    public ReentrantLock acquire(UUID userId) throws InterruptedException {
+        return acquireStripe(stripe(userId));
+    }
+
+    /**
+     * Acquires the locks for several carts, in stripe order so that two callers locking the same
+     * carts cannot each hold one and wait for the other.
+     * @param userIds owners of the carts
+     * @return the held locks, or null if one could not be acquired in time; none is held then
+     */
+    public List<ReentrantLock> acquireAll(List<UUID> userIds) throws InterruptedException {
+        int[] stripes = userIds.stream().mapToInt(this::stripe).distinct().sorted().toArray();
+        List<ReentrantLock> held = new ArrayList<>(stripes.length);
+        for (int stripe : stripes) {
+            ReentrantLock lock = acquireStripe(stripe);
+            if (lock == null) {
+                held.reversed().forEach(ReentrantLock::unlock);
+                return null;
+            }
+            held.add(lock);
+        }
+        return held;
+    }
+
+    private ReentrantLock acquireStripe(int stripe) throws InterruptedException {
+        ReentrantLock lock = locks[stripe];
+        if (lock.tryLock()) {
+            return lock;
+        }
+        contendedCounter.increment();
+        long start = System.nanoTime();
+        boolean acquired = lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS);
+        waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            timeoutCounter.increment();
+            return null;
+        }
+        return lock;
+    }
+
+    int stripe(UUID userId) {
+        int h = userId.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
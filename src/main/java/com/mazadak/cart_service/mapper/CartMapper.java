@@ -3,9 +3,11 @@ package com.mazadak.cart_service.mapper;
 
 import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
 import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.CartSummaryDTO;
 import com.mazadak.cart_service.model.CartItem;
 import com.mazadak.cart_service.model.Cart;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 @Mapper(componentModel = "spring")
 public interface CartMapper {
@@ -13,6 +15,8 @@ public interface CartMapper {
 
     CartResponseDTO toCartResponseDTO(Cart cart);
     CartItemResponseDTO toCartItemResponseDTO(CartItem cartItem);
+    @Mapping(target = "complete", expression = "java(cart.getUnpricedItems() == 0)")
+    CartSummaryDTO toCartSummaryDTO(Cart cart);
     CartItem toCartItem(CartItemResponseDTO cartItemResponseDTO);
     Cart toCart(CartResponseDTO cartResponseDTO);
 
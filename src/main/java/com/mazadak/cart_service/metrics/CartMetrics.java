@@ -0,0 +1,66 @@
+package com.mazadak.cart_service.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business meters for cart operations.
+ * Per-method latency is recorded separately by {@code @Timed} on the service.
+ */
+@Component
+public class CartMetrics {
+
+    private final Counter cartsCreated;
+
+    private final Counter inactiveCartRejections;
+
+    private final DistributionSummary cartSize;
+
+    private final DistributionSummary productBatchSize;
+
+    private final Counter staleSnapshots;
+
+    public CartMetrics(MeterRegistry meterRegistry) {
+        this.cartsCreated = Counter.builder("cart.created")
+                .description("Carts created on first access")
+                .register(meterRegistry);
+        this.inactiveCartRejections = Counter.builder("cart.inactive.rejections")
+                .description("Mutations rejected because the cart is checking out")
+                .register(meterRegistry);
+        this.cartSize = DistributionSummary.builder("cart.size")
+                .description("Number of items in a cart when it is read")
+                .baseUnit("items")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.productBatchSize = DistributionSummary.builder("cart.product.batch.size")
+                .description("Number of product ids sent in one product-catalog batch call")
+                .baseUnit("products")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.staleSnapshots = Counter.builder("cart.product.snapshot.stale")
+                .description("Cart items whose stored product snapshot was missing or too old to render")
+                .register(meterRegistry);
+    }
+
+    public void cartCreated() {
+        cartsCreated.increment();
+    }
+
+    public void inactiveCartRejected() {
+        inactiveCartRejections.increment();
+    }
+
+    public void recordCartSize(int items) {
+        cartSize.record(items);
+    }
+
+    public void recordProductBatchSize(int products) {
+        productBatchSize.record(products);
+    }
+
+    public void recordStaleSnapshots(int items) {
+        staleSnapshots.increment(items);
+    }
+}
@@ -6,7 +6,9 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.ColumnDefault;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -34,6 +36,34 @@ public class Cart extends BaseEntity {
     @Enumerated(EnumType.STRING)
     private Status status = Status.ACTIVE;
 
+    // Guest carts belong to an anonymous visitor; userId then holds the guest id
+    @Column(name = "guest", nullable = false)
+    @ColumnDefault("false")
+    private boolean guest;
+
+    // Totals kept up to date by every cart mutation, so the summary never reads the items
+    @Column(name = "item_count", nullable = false)
+    @ColumnDefault("0")
+    private int itemCount;
+
+    @Column(name = "distinct_products", nullable = false)
+    @ColumnDefault("0")
+    private int distinctProducts;
+
+    @Column(name = "subtotal", nullable = false, precision = 19, scale = 2)
+    @ColumnDefault("0")
+    private BigDecimal subtotal = BigDecimal.ZERO;
+
+    // Items whose price was unknown when added, left out of the subtotal
+    @Column(name = "unpriced_items", nullable = false)
+    @ColumnDefault("0")
+    private int unpricedItems;
+
+    // False for carts that predate the totals columns, until CartTotalsBackfill has computed them
+    @Column(name = "totals_ready", nullable = false)
+    @ColumnDefault("false")
+    private boolean totalsReady = true;
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<CartItem> cartItems = new ArrayList<>();
 
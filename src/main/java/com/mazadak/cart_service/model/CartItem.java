@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.Min;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
@@ -16,7 +17,9 @@ import java.util.UUID;
 @Table(name = "cart_item",
         uniqueConstraints = {@UniqueConstraint(columnNames = {"cart_id", "product_id"})},
         indexes = {
-                @Index(name = "idx_cart_item_cart", columnList = "cart_id")
+                @Index(name = "idx_cart_item_cart", columnList = "cart_id"),
+                // Finds the carts holding a product when it leaves the catalog
+                @Index(name = "idx_cart_item_product", columnList = "product_id")
         })
 public class CartItem extends BaseEntity {
 
@@ -37,6 +40,14 @@ public class CartItem extends BaseEntity {
     @Min(1)
     private Integer quantity;
 
+    // Product price when the item was added, from the product snapshot cache
+    @Column(name = "unit_price", precision = 19, scale = 2)
+    private BigDecimal unitPrice;
+
+    // Null until the product was first looked up for this item
+    @Embedded
+    private ProductSnapshot snapshot;
+
 }
 
 
@@ -0,0 +1,35 @@
+package com.mazadak.cart_service.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Number of carts holding a product, split over several stripe rows so that instances writing at the
+ * same time rarely touch the same row. The product's count is the sum of its stripes.
+ */
+@Entity
+@Table(name = "product_demand")
+@IdClass(ProductDemand.Key.class)
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductDemand {
+
+    @Id
+    @Column(name = "product_id", nullable = false)
+    private UUID productId;
+
+    @Id
+    @Column(name = "stripe", nullable = false)
+    private int stripe;
+
+    @Column(name = "carts", nullable = false)
+    private long carts;
+
+    public record Key(UUID productId, int stripe) implements Serializable { }
+}
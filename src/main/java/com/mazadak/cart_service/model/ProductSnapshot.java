@@ -0,0 +1,54 @@
+package com.mazadak.cart_service.model;
+
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+
+import java.math.BigDecimal;
+
+/**
+ * The product as a cart item last saw it, so detailed carts render without calling product-catalog.
+ * Replaced whole, never changed in place.
+ * @param version epoch millis the product state this copies is at least as new as: the product's update
+ *                time for copies from events, the start of the fetch for fetched ones; a copy only replaces
+ *                an older one
+ * @param takenAt epoch millis when this copy was taken from product-catalog or an event, which the age
+ *                of a stored snapshot is measured from
+ */
+@Embeddable
+public record ProductSnapshot(
+        @Column(name = "product_title", length = 500)
+        String title,
+
+        @Column(name = "product_description", columnDefinition = "text")
+        String description,
+
+        @Column(name = "product_price", precision = 19, scale = 2)
+        BigDecimal price,
+
+        @Column(name = "product_image", length = 2048)
+        String primaryImage,
+
+        @Column(name = "snapshot_version")
+        Long version,
+
+        @Column(name = "snapshot_taken_at")
+        Long takenAt
+) {
+
+    /**
+     * A copy fetched from product-catalog, versioned and taken at the start of the fetch.
+     */
+    public static ProductSnapshot of(ProductSummaryDTO product, long fetchedAt) {
+        return new ProductSnapshot(product.title(), product.description(), product.price(),
+                product.primaryImage(), fetchedAt, fetchedAt);
+    }
+
+    public boolean isNewerThan(long version) {
+        return this.version != null && this.version > version;
+    }
+
+    public boolean isTakenAfter(long millis) {
+        return takenAt != null && takenAt > millis;
+    }
+}
@@ -20,7 +20,41 @@ public interface CartItemRepository extends JpaRepository<CartItem, UUID> {
     Optional<CartItem> findByCart_CartIdAndProductId(@Param("cartId") UUID cartId,
                                                              @Param("productId") UUID productId);
 
+    // Bypasses the persistence context, whose copy may predate the last write-behind flush
+    @Query("SELECT ci.quantity FROM CartItem ci WHERE ci.itemId = :itemId")
+    Optional<Integer> findQuantityByItemId(@Param("itemId") UUID itemId);
+
     @Modifying
     @Query("DELETE FROM CartItem ci WHERE ci.cart.cartId = :cartId")
     void deleteAllByCart_CartId(@Param("cartId") UUID cartId);
+
+    /**
+     * Moves the items of a guest cart into the given cart in one statement, adding up the quantities
+     * of products that are in both, and deletes the guest cart.
+     * @return 1 if the guest cart existed, 0 otherwise
+     */
+    @Modifying(clearAutomatically = true)
+    @Query(value = """
+            WITH guest AS (
+                SELECT cart_id FROM carts WHERE user_id = :guestId AND guest
+            ), moved AS (
+                DELETE FROM cart_item WHERE cart_id IN (SELECT cart_id FROM guest)
+                RETURNING product_id, quantity, unit_price,
+                    product_title, product_description, product_price, product_image, snapshot_version, snapshot_taken_at
+            ), merged AS (
+                INSERT INTO cart_item (item_id, cart_id, product_id, quantity, unit_price,
+                    product_title, product_description, product_price, product_image, snapshot_version, snapshot_taken_at,
+                    created_at, updated_at, created_by, updated_by, deleted)
+                SELECT gen_random_uuid(), :cartId, product_id, quantity, unit_price,
+                    product_title, product_description, product_price, product_image, snapshot_version, snapshot_taken_at,
+                    now(), now(), :auditor, :auditor, false FROM moved
+                ON CONFLICT (cart_id, product_id) DO UPDATE
+                SET quantity = cart_item.quantity + EXCLUDED.quantity,
+                    unit_price = COALESCE(cart_item.unit_price, EXCLUDED.unit_price),
+                    updated_at = EXCLUDED.updated_at,
+                    updated_by = EXCLUDED.updated_by
+            )
+            DELETE FROM carts WHERE cart_id IN (SELECT cart_id FROM guest)
+            """, nativeQuery = true)
+    int mergeGuestCart(@Param("guestId") UUID guestId, @Param("cartId") UUID cartId, @Param("auditor") String auditor);
 }
@@ -1,20 +1,82 @@
 package com.mazadak.cart_service.repository;
 
+import com.mazadak.cart_service.export.CartExportRow;
 import com.mazadak.cart_service.model.Cart;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface CartRepository extends JpaRepository<Cart, UUID> {
 
     Optional<Cart> findByCartId(UUID cartId);
 
-    @Query("SELECT c FROM Cart c WHERE c.userId = :userId")
+    // Items are fetched in the same statement, callers work on cart.getCartItems()
+    @Query("SELECT c FROM Cart c LEFT JOIN FETCH c.cartItems WHERE c.userId = :userId")
     Optional<Cart> findCartByUserId(@Param("userId") UUID userId);
 
-}
\ No newline at end of file
+    // Cart row only, for reads that need no items
+    Optional<Cart> findByUserId(UUID userId);
+
+    boolean existsByUserIdAndGuestTrue(UUID guestId);
+
+    /**
+     * Recomputes the stored totals of the users' carts from their items, for writes that do not go
+     * through the loaded entities.
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE carts SET
+                item_count = (SELECT COALESCE(SUM(i.quantity), 0) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                distinct_products = (SELECT COUNT(*) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                subtotal = (SELECT COALESCE(SUM(i.quantity * i.unit_price), 0) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                unpriced_items = (SELECT COUNT(*) FROM cart_item i WHERE i.cart_id = carts.cart_id AND i.unit_price IS NULL),
+                totals_ready = TRUE,
+                updated_at = CURRENT_TIMESTAMP
+            WHERE user_id IN (:userIds)
+            """, nativeQuery = true)
+    int refreshTotals(@Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * Computes the totals of up to {@code limit} carts that have none yet.
+     * A cart whose totals a concurrent write has just set is skipped.
+     * @return the number of carts updated, 0 once every cart has its totals
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE carts SET
+                item_count = (SELECT COALESCE(SUM(i.quantity), 0) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                distinct_products = (SELECT COUNT(*) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                subtotal = (SELECT COALESCE(SUM(i.quantity * i.unit_price), 0) FROM cart_item i WHERE i.cart_id = carts.cart_id),
+                unpriced_items = (SELECT COUNT(*) FROM cart_item i WHERE i.cart_id = carts.cart_id AND i.unit_price IS NULL),
+                totals_ready = TRUE
+            WHERE totals_ready = FALSE
+              AND cart_id IN (SELECT c.cart_id FROM carts c WHERE c.totals_ready = FALSE LIMIT :limit)
+            """, nativeQuery = true)
+    int backfillTotals(@Param("limit") int limit);
+
+    /**
+     * Carts after the given id with their items, one row per item, ordered by cart.
+     * Read through a cursor of the hinted fetch size, callers close the stream within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("""
+            SELECT new com.mazadak.cart_service.export.CartExportRow(
+                c.cartId, c.userId, c.status, c.guest, c.createdAt, c.updatedAt,
+                i.itemId, i.productId, i.quantity, i.unitPrice)
+            FROM Cart c LEFT JOIN c.cartItems i
+            WHERE c.cartId > :after
+            ORDER BY c.cartId, i.itemId
+            """)
+    Stream<CartExportRow> streamForExport(@Param("after") UUID after);
+}
@@ -1,9 +1,11 @@
 package com.mazadak.cart_service.service;
 
+import com.mazadak.cart_service.cache.CompactCart;
 import com.mazadak.cart_service.dto.request.AddItemRequest;
 import com.mazadak.cart_service.dto.request.UpdateItemRequest;
 import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
 import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.CartSummaryDTO;
 import com.mazadak.cart_service.dto.response.DetailedCartItemResponseDTO;
 import jakarta.validation.constraints.NotNull;
 
@@ -19,12 +21,24 @@ public interface CartService {
      */
     CartResponseDTO getCart(UUID userId);
 
+    /**
+     * Same cart as {@link #getCart}, as a versioned snapshot; served from the cart cache when enabled.
+     * @param userId
+     */
+    CompactCart getCartSnapshot(UUID userId);
+
     /**
      * Retrieves all items in the active cart for a user.
      * @param userId
      */
     List<CartItemResponseDTO> getCartItems(UUID userId);
 
+    /**
+     * Item count, distinct products and subtotal of the user's cart, read from its stored totals.
+     * @param userId
+     */
+    CartSummaryDTO getCartSummary(UUID userId);
+
     /**
      * Adds an item to the active cart for a user.
      * If the item already exists, its quantity is increased.
@@ -76,4 +90,24 @@ public interface CartService {
     void deactivateCart(UUID userId);
 
     Boolean isActive(@NotNull UUID userId);
+
+    /**
+     * Creates an empty cart for an anonymous visitor.
+     * @param guestId freshly generated id the visitor uses from then on
+     */
+    CartResponseDTO createGuestCart(UUID guestId);
+
+    /**
+     * Fails with ResourceNotFoundException unless the id belongs to a guest cart.
+     * @param guestId
+     */
+    void checkGuestCart(UUID guestId);
+
+    /**
+     * Moves the items of a guest cart into the user's cart and deletes the guest cart.
+     * Quantities of products already in the user's cart are added up.
+     * @param userId
+     * @param guestId
+     */
+    CartResponseDTO mergeGuestCart(UUID userId, UUID guestId);
 }
\ No newline at end of file
@@ -1,38 +1,53 @@
 package com.mazadak.cart_service.service.Impl;
 
-import com.mazadak.cart_service.client.ProductClient;
-import com.mazadak.cart_service.dto.entity.ProductImageDTO;
+import com.mazadak.cart_service.cache.CartCache;
+import com.mazadak.cart_service.cache.CompactCart;
+import com.mazadak.cart_service.client.ProductBatchFetcher;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.client.StockAvailabilityCache;
+import com.mazadak.cart_service.demand.ProductDemandCounters;
 import com.mazadak.cart_service.dto.request.AddItemRequest;
 import com.mazadak.cart_service.dto.request.UpdateItemRequest;
 import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
 import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.CartSummaryDTO;
 import com.mazadak.cart_service.dto.response.DetailedCartItemResponseDTO;
-import com.mazadak.cart_service.dto.response.ProductResponseDTO;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.lock.CartWriteLock;
 import com.mazadak.cart_service.mapper.CartMapper;
+import com.mazadak.cart_service.metrics.CartMetrics;
 import com.mazadak.cart_service.model.Cart;
 import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.ProductSnapshot;
 import com.mazadak.cart_service.model.enums.Status;
 import com.mazadak.cart_service.repository.CartItemRepository;
 import com.mazadak.cart_service.repository.CartRepository;
 import com.mazadak.cart_service.service.CartService;
+import com.mazadak.cart_service.snapshot.ProductSnapshotWriter;
+import com.mazadak.cart_service.writebehind.WriteBehindBuffer;
 import com.mazadak.common.exception.domain.cart.CartIsNotActiveException;
 import com.mazadak.common.exception.shared.ResourceNotFoundException;
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.AuditorAware;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
+@Timed(value = "cart.service", histogram = true, percentiles = {0.5, 0.95, 0.99})
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
@@ -41,17 +56,49 @@ public class CartServiceImpl implements CartService {
 
     private final CartMapper cartMapper;
 
-    private final ProductClient productClient;
+    private final ProductBatchFetcher productBatches;
+
+    private final ProductSnapshotCache productSnapshots;
+
+    private final ProductSnapshotWriter productSnapshotWriter;
+
+    private final StockAvailabilityCache stockAvailability;
+
+    private final CartMetrics cartMetrics;
+
+    private final AuditorAware<String> auditorAware;
+
+    private final WriteBehindBuffer writeBehind;
+
+    private final CartCache cartCache;
+
+    private final ProductDemandCounters productDemand;
 
     @Override
     @Transactional(readOnly = true)
     public CartResponseDTO getCart(UUID userId) {
         log.info("getting The Active Cart for {}", userId);
+        if (cartCache.isEnabled()) {
+            return getCachedCart(userId).toCartResponseDTO();
+        }
         Cart cart = getUserCart(userId);
         log.info("cart: {}", cart);
         return cartMapper.toCartResponseDTO(cart);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CompactCart getCartSnapshot(UUID userId) {
+        return cartCache.isEnabled() ? getCachedCart(userId) : CompactCart.of(getUserCart(userId));
+    }
+
+    // Only carts that exist are cached: a read-only transaction never flushes a cart created here,
+    // so caching its id would outlive the cart and shadow the one the next write creates
+    private CompactCart getCachedCart(UUID userId) {
+        CompactCart cart = cartCache.get(userId, id -> cartRepository.findCartByUserId(id).map(CompactCart::of).orElse(null));
+        return cart != null ? cart : CompactCart.of(createNewCart(userId));
+    }
+
     private Cart getUserCart(UUID userId) {
         return cartRepository.findCartByUserId(userId)
                 .orElseGet(() -> {
@@ -66,6 +113,7 @@ public class CartServiceImpl implements CartService {
         cart.setUserId(userId);
         cart.setStatus(Status.ACTIVE);
         log.info("new cart: {}", cart);
+        cartMetrics.cartCreated();
         return cartRepository.save(cart);
     }
 
@@ -73,26 +121,62 @@ public class CartServiceImpl implements CartService {
     @Transactional(readOnly = true)
     public List<CartItemResponseDTO> getCartItems(UUID userId) {
         log.info("getting cart items for {}", userId);
+        if (cartCache.isEnabled()) {
+            CompactCart cart = getCachedCart(userId);
+            cartMetrics.recordCartSize(cart.size());
+            return cart.toItemDTOs();
+        }
         Cart cart = getUserCart(userId);
-        return cartItemRepository.findByCart_CartId(cart.getCartId()).stream()
+        List<CartItem> cartItems = cart.getCartItems();
+        cartMetrics.recordCartSize(cartItems.size());
+        return cartItems.stream()
                 .map(cartMapper::toCartItemResponseDTO)
                 .collect(Collectors.toList());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CartSummaryDTO getCartSummary(UUID userId) {
+        return cartRepository.findByUserId(userId)
+                .map(cart -> cart.isTotalsReady() ? cart : totalsFromItems(userId))
+                .map(cartMapper::toCartSummaryDTO)
+                .orElseGet(() -> new CartSummaryDTO(null, 0, 0, BigDecimal.ZERO, true));
+    }
+
+    // Cart not backfilled yet; the transaction is read-only, so the computed totals are not written
+    private Cart totalsFromItems(UUID userId) {
+        Cart cart = getUserCart(userId);
+        refreshTotals(cart);
+        return cart;
+    }
+
     @Override
     @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock
     public CartItemResponseDTO addItem(UUID userId, AddItemRequest request) {
         log.info("adding item {} to cart for {}", request, userId);
         Cart cart = getUserCart(userId);
 
        checkCartStatus(cart);
 
-        CartItem cartItem = cartItemRepository.findByCart_CartIdAndProductId(cart.getCartId(), request.productId())
+        Optional<CartItem> buffered = findItem(cart, request.productId()).filter(item -> writeBehind.isEnabled());
+        if (buffered.isPresent()) {
+            CartItem item = buffered.get();
+            return bufferQuantity(userId, item, currentQuantity(userId, item) + request.quantity());
+        }
+
+        // Products are fetched by the caller before the lock is taken; one it could not fetch is left unpriced
+        CartItem cartItem = findItem(cart, request.productId())
                 .map(existingItem -> {
                     log.info("item {} already exists in cart", request.productId());
                     int newQuantity = existingItem.getQuantity() + request.quantity();
                     log.info("new quantity: {}", newQuantity);
                     existingItem.setQuantity(newQuantity);
+                    if (existingItem.getUnitPrice() == null) {
+                        ProductSnapshot snapshot = productSnapshots.cachedSnapshotOf(request.productId());
+                        existingItem.setUnitPrice(snapshot != null ? snapshot.price() : null);
+                        existingItem.setSnapshot(snapshot);
+                    }
                     return cartItemRepository.save(existingItem);
                 })
                 .orElseGet(() -> {
@@ -101,14 +185,22 @@ public class CartServiceImpl implements CartService {
                     newItem.setCart(cart);
                     newItem.setProductId(request.productId());
                     newItem.setQuantity(request.quantity());
+                    ProductSnapshot snapshot = productSnapshots.cachedSnapshotOf(request.productId());
+                    newItem.setUnitPrice(snapshot != null ? snapshot.price() : null);
+                    newItem.setSnapshot(snapshot);
+                    cart.getCartItems().add(newItem);
+                    productDemand.added(request.productId());
                     return cartItemRepository.save(newItem);
                 });
+        refreshTotals(userId, cart);
+        cacheQuantity(userId, cartItem);
         log.info("item {} added to cart", request.productId());
         return cartMapper.toCartItemResponseDTO(cartItem);
     }
 
     @Override
     @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock
     public CartItemResponseDTO updateItemQuantity(UUID userId, UUID productId, UpdateItemRequest request) {
         log.info("updating item {} quantity to {} for user {}",productId, request.quantity(), userId);
         Cart cart = cartRepository.findCartByUserId(userId)
@@ -116,12 +208,20 @@ public class CartServiceImpl implements CartService {
 
         checkCartStatus(cart);
 
-        CartItem cartItem = cartItemRepository.findByCart_CartIdAndProductId(cart.getCartId(),productId)
+        if (writeBehind.isEnabled()) {
+            CartItem item = findItem(cart, productId)
+                    .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart."));
+            return bufferQuantity(userId, item, request.quantity());
+        }
+
+        CartItem cartItem = findItem(cart, productId)
                 .map(existingItem -> {
                     existingItem.setQuantity(request.quantity());
                     return cartItemRepository.save(existingItem);
                 })
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart."));
+        refreshTotals(cart);
+        cacheQuantity(userId, cartItem);
         log.info("item {} quantity updated to {}",productId, request.quantity());
         return cartMapper.toCartItemResponseDTO(cartItem);
     }
@@ -129,6 +229,7 @@ public class CartServiceImpl implements CartService {
 
     @Override
     @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock
     public CartItemResponseDTO reduceItemQuantity(UUID userId, UUID productId, int quantity) {
         log.info("reducing item {} quantity for user {}", productId, userId);
         Cart cart = cartRepository.findCartByUserId(userId)
@@ -136,26 +237,33 @@ public class CartServiceImpl implements CartService {
 
         checkCartStatus(cart);
 
-        CartItem cartItem = cartItemRepository.findByCart_CartIdAndProductId(cart.getCartId(), productId)
-                .map(item -> {
-                    int newQuantity = item.getQuantity() - quantity;
-                    if (newQuantity <= 0) {
-                        log.info("item {} quantity reduced to 0, removing item from cart", productId);
-                        cartItemRepository.delete(item);
-                        item.setQuantity(0); // Just to prevent null pointer exception while mapping
-                        return item;
-                    }
-                    log.info("item {} quantity reduced to {}", productId, newQuantity);
-                    item.setQuantity(newQuantity);
-                    return cartItemRepository.save(item);
-                })
+        CartItem cartItem = findItem(cart, productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart"));
+        int newQuantity = (writeBehind.isEnabled() ? currentQuantity(userId, cartItem) : cartItem.getQuantity()) - quantity;
+        if (newQuantity <= 0) {
+            log.info("item {} quantity reduced to 0, removing item from cart", productId);
+            cart.getCartItems().remove(cartItem);
+            cartItemRepository.delete(cartItem);
+            cartItem.setQuantity(0); // Just to prevent null pointer exception while mapping
+            cartCache.update(userId, cached -> cached.without(productId));
+            productDemand.removed(List.of(productId));
+        } else if (writeBehind.isEnabled()) {
+            log.info("item {} quantity reduced to {}", productId, newQuantity);
+            return bufferQuantity(userId, cartItem, newQuantity);
+        } else {
+            log.info("item {} quantity reduced to {}", productId, newQuantity);
+            cartItem.setQuantity(newQuantity);
+            cartItem = cartItemRepository.save(cartItem);
+            cacheQuantity(userId, cartItem);
+        }
+        refreshTotals(userId, cart);
         return cartMapper.toCartItemResponseDTO(cartItem);
     }
 
 
     @Override
     @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock
     public void removeItem(UUID userId, UUID productId) {
         log.info("removing item {} from cart for user {}", productId, userId);
         Cart cart = cartRepository.findCartByUserId(userId)
@@ -163,54 +271,153 @@ public class CartServiceImpl implements CartService {
 
         checkCartStatus(cart);
 
-        CartItem cartItem = cartItemRepository.findByCart_CartIdAndProductId(cart.getCartId(), productId)
+        CartItem cartItem = findItem(cart, productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Item not found in cart"));
 
+        cart.getCartItems().remove(cartItem);
         cartItemRepository.delete(cartItem);
+        refreshTotals(cart);
+        cartCache.update(userId, cached -> cached.without(productId));
+        productDemand.removed(List.of(productId));
         log.info("item {} removed from cart", productId);
     }
 
 
     @Override
     @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock
     public void clearCart(UUID userId) {
         log.info("clearing cart for user {}", userId);
         Cart cart = cartRepository.findCartByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "userId", userId.toString()));
 
+        List<UUID> productIds = cart.getCartItems().stream().map(CartItem::getProductId).toList();
         cartItemRepository.deleteAllByCart_CartId(cart.getCartId());
+        // The items are gone in bulk, the loaded collection is left as is
+        cart.setItemCount(0);
+        cart.setDistinctProducts(0);
+        cart.setSubtotal(BigDecimal.ZERO);
+        cart.setUnpricedItems(0);
+        cartCache.update(userId, CompactCart::cleared);
+        productDemand.removed(productIds);
         log.info("cart cleared for user {}", userId);
     }
 
+    /**
+     * Write-behind: the item row is left alone, the buffer writes the quantity and the cart totals later.
+     */
+    private CartItemResponseDTO bufferQuantity(UUID userId, CartItem item, int quantity) {
+        writeBehind.record(userId, item.getItemId(), quantity);
+        cartCache.update(userId, cached -> cached.withQuantity(item.getItemId(), item.getProductId(), quantity));
+        return new CartItemResponseDTO(item.getItemId(), item.getProductId(), quantity);
+    }
+
+    private void cacheQuantity(UUID userId, CartItem item) {
+        cartCache.update(userId, cached -> cached.withQuantity(item.getItemId(), item.getProductId(), item.getQuantity()));
+    }
+
+    // The loaded item may predate a flush that committed since, so re-read it when nothing is buffered
+    private int currentQuantity(UUID userId, CartItem item) {
+        Integer buffered = writeBehind.bufferedQuantity(userId, item.getItemId());
+        if (buffered != null) {
+            return buffered;
+        }
+        return cartItemRepository.findQuantityByItemId(item.getItemId()).orElse(item.getQuantity());
+    }
+
+    /**
+     * Fetches the products from product-catalog and stores the result on every cart item of this
+     * shard holding them. A failed write only costs the next reader another fetch.
+     */
+    private Map<UUID, ProductSnapshot> fetchSnapshots(List<UUID> productIds) {
+        cartMetrics.recordStaleSnapshots(productIds.size());
+        // Taken before the fetch, so an update event racing with it still wins
+        long version = System.currentTimeMillis();
+        List<ProductSummaryDTO> products = productBatches.fetch(productIds);
+        productSnapshots.putAll(products);
+        Map<UUID, ProductSnapshot> fetched = products.stream()
+                .collect(Collectors.toMap(ProductSummaryDTO::productId, product -> ProductSnapshot.of(product, version)));
+        try {
+            productSnapshotWriter.write(fetched);
+        } catch (RuntimeException e) {
+            log.warn("could not store snapshots of {} products", fetched.size(), e);
+        }
+        return fetched;
+    }
+
+    // With write-behind the loaded quantities may be stale, so the totals are recomputed in the database
+    private void refreshTotals(UUID userId, Cart cart) {
+        if (writeBehind.isEnabled()) {
+            cartItemRepository.flush();
+            cartRepository.refreshTotals(List.of(userId));
+            return;
+        }
+        refreshTotals(cart);
+    }
+
+    // Recomputed from the items already loaded with the cart, no extra query
+    private void refreshTotals(Cart cart) {
+        int itemCount = 0;
+        int unpricedItems = 0;
+        BigDecimal subtotal = BigDecimal.ZERO;
+        for (CartItem item : cart.getCartItems()) {
+            itemCount += item.getQuantity();
+            if (item.getUnitPrice() == null) {
+                unpricedItems++;
+            } else {
+                subtotal = subtotal.add(item.getUnitPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+        }
+        cart.setItemCount(itemCount);
+        cart.setDistinctProducts(cart.getCartItems().size());
+        cart.setSubtotal(subtotal);
+        cart.setUnpricedItems(unpricedItems);
+        cart.setTotalsReady(true);
+    }
+
+    private Optional<CartItem> findItem(Cart cart, UUID productId) {
+        return cart.getCartItems().stream()
+                .filter(item -> item.getProductId().equals(productId))
+                .findFirst();
+    }
+
     public void checkCartStatus(Cart cart) {
         if(cart.getStatus() == Status.INACTIVE) {
             log.info("Cart is not active Checkout is processing");
+            cartMetrics.inactiveCartRejected();
             throw new CartIsNotActiveException("Cart is not active Checkout is processing");
         }
     }
 
     @Override
+    @CartWriteLock
     public void activateCart(UUID userId) {
         log.info("activating cart for user {}", userId);
         Cart cart = cartRepository.findCartByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "userId", userId.toString()));
         cart.setStatus(Status.ACTIVE);
         cartRepository.save(cart);
+        cartCache.update(userId, cached -> cached.withActive(true));
         log.info("cart activated for user {}", userId);
     }
 
     @Override
+    @CartWriteLock
     public void deactivateCart(UUID userId) {
         log.info("deactivating cart for user {}", userId);
         Cart cart = cartRepository.findCartByUserId(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("Cart", "userId", userId.toString()));
         cart.setStatus(Status.INACTIVE);
         cartRepository.save(cart);
+        cartCache.update(userId, cached -> cached.withActive(false));
         log.info("cart deactivated for user {}", userId);
     }
 
     @Override
     public Boolean isActive(UUID userId) {
+        if (cartCache.isEnabled()) {
+            return getCachedCart(userId).isActive();
+        }
         Cart cart = getUserCart(userId);
 
         return cart.getStatus().equals(Status.ACTIVE);
@@ -223,6 +430,7 @@ public class CartServiceImpl implements CartService {
         Cart cart = getUserCart(userId);
 
         List<CartItem> cartItems = cart.getCartItems();
+        cartMetrics.recordCartSize(cartItems.size());
 
         if(cartItems.isEmpty()){
             log.info("no cartItems found for user {}", userId);
@@ -230,31 +438,39 @@ public class CartServiceImpl implements CartService {
         }
 
         List<UUID> productIds = cartItems.stream().map(CartItem::getProductId).collect(Collectors.toList());
-        List<ProductResponseDTO> products = productClient.getProductsByIds(productIds).getBody();
-        // Mapping ProductId to ProductResponseDTO for fast lookup
-        Map<UUID,ProductResponseDTO> productMap = products.stream().collect(Collectors.toMap(ProductResponseDTO::productId, Function.identity()));
+        // Stored snapshots are kept current by product events, only missing or old ones are fetched
+        Map<UUID, ProductSnapshot> snapshots = new HashMap<>();
+        List<UUID> staleProductIds = new ArrayList<>();
+        for (CartItem cartItem : cartItems) {
+            if (productSnapshots.isFresh(cartItem.getSnapshot())) {
+                snapshots.put(cartItem.getProductId(), cartItem.getSnapshot());
+            } else {
+                staleProductIds.add(cartItem.getProductId());
+            }
+        }
+        if (!staleProductIds.isEmpty()) {
+            snapshots.putAll(fetchSnapshots(staleProductIds));
+        }
+        Map<UUID, Integer> availableQuantities = stockAvailability.availableQuantities(productIds);
 
         List<DetailedCartItemResponseDTO> detailedCartItems = new ArrayList<>();
         for (CartItem cartItem : cartItems) {
-            ProductResponseDTO product = productMap.get(cartItem.getProductId());
+            ProductSnapshot product = snapshots.get(cartItem.getProductId());
             if (product == null) {
                 log.error("Product not found: {}", cartItem.getProductId());
                 throw new RuntimeException("Product not found: " + cartItem.getProductId());
             }
 
-            String primaryImage = product.images().stream()
-                    .filter(ProductImageDTO::isPrimary)
-                    .findFirst()
-                    .map(ProductImageDTO::imageUri)
-                    .orElseGet(() -> product.images().isEmpty() ? null : product.images().get(0).imageUri());
-
+            Integer availableQuantity = availableQuantities.get(cartItem.getProductId());
             DetailedCartItemResponseDTO detailedCartItem = new DetailedCartItemResponseDTO(
                     cartItem.getProductId(),
                     cartItem.getQuantity(),
                     product.title(),
                     product.description(),
                     product.price(),
-                    primaryImage
+                    product.primaryImage(),
+                    availableQuantity,
+                    availableQuantity == null ? null : availableQuantity >= cartItem.getQuantity()
             );
 
             detailedCartItems.add(detailedCartItem);
@@ -264,4 +480,44 @@ public class CartServiceImpl implements CartService {
         return detailedCartItems;
     }
 
+    @Override
+    public CartResponseDTO createGuestCart(UUID guestId) {
+        log.info("creating guest cart {}", guestId);
+        Cart cart = new Cart();
+        cart.setUserId(guestId);
+        cart.setStatus(Status.ACTIVE);
+        cart.setGuest(true);
+        cartMetrics.cartCreated();
+        return cartMapper.toCartResponseDTO(cartRepository.save(cart));
+    }
+
+    @Override
+    public void checkGuestCart(UUID guestId) {
+        if (!cartRepository.existsByUserIdAndGuestTrue(guestId)) {
+            throw new ResourceNotFoundException("Guest cart", "guestId", guestId.toString());
+        }
+    }
+
+    @Override
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    @CartWriteLock(carts = 2)
+    public CartResponseDTO mergeGuestCart(UUID userId, UUID guestId) {
+        log.info("merging guest cart {} into cart of user {}", guestId, userId);
+        Cart cart = getUserCart(userId);
+        checkCartStatus(cart);
+        // A cart created just above must exist before items can reference it
+        cartRepository.flush();
+
+        String auditor = auditorAware.getCurrentAuditor().orElse(null);
+        if (cartItemRepository.mergeGuestCart(guestId, cart.getCartId(), auditor) == 0) {
+            throw new ResourceNotFoundException("Guest cart", "guestId", guestId.toString());
+        }
+        Cart merged = cartRepository.findCartByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "userId", userId.toString()));
+        refreshTotals(merged);
+        cartCache.invalidate(userId);
+        cartCache.invalidate(guestId);
+        log.info("merged guest cart {} into cart of user {}", guestId, userId);
+        return cartMapper.toCartResponseDTO(merged);
+    }
 }
@@ -0,0 +1,38 @@
+package com.mazadak.cart_service.shard;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Connection pools of every configured shard, in configuration order; the first one is the default.
+ * The pools are closed with the context.
+ */
+public record ShardDataSources(Map<String, DataSource> pools) {
+
+    public Set<String> names() {
+        return pools.keySet();
+    }
+
+    public String defaultShard() {
+        return pools.keySet().iterator().next();
+    }
+
+    public DataSource get(String shard) {
+        DataSource pool = pools.get(shard);
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown shard: " + shard);
+        }
+        return pool;
+    }
+
+    public void close() {
+        pools.values().forEach(pool -> {
+            if (pool instanceof HikariDataSource hikari) {
+                hikari.close();
+            }
+        });
+    }
+}
@@ -0,0 +1,172 @@
+package com.mazadak.cart_service.shard;
+
+import com.mazadak.cart_service.lock.StripedCartLocks;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Moves carts that the current ring places on another shard, one batch at a time, while the service keeps serving.
+ * Each batch holds the write locks of its carts, is copied to the target shard in one transaction
+ * and then deleted from the source. A batch interrupted between the two steps is simply copied again on the next run.
+ */
+@Slf4j
+public class ShardRebalancer {
+
+    private static final List<String> TABLES = List.of("carts", "cart_item");
+
+    private final ShardRouter router;
+
+    private final StripedCartLocks cartLocks;
+
+    private final int batchSize;
+
+    private final Map<String, NamedParameterJdbcTemplate> jdbcTemplates = new HashMap<>();
+
+    private final Map<String, TransactionTemplate> transactionTemplates = new HashMap<>();
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong moved = new AtomicLong();
+
+    public ShardRebalancer(ShardRouter router, ShardDataSources shards, StripedCartLocks cartLocks, int batchSize) {
+        this.router = router;
+        this.cartLocks = cartLocks;
+        this.batchSize = batchSize;
+        shards.pools().forEach((name, pool) -> {
+            jdbcTemplates.put(name, new NamedParameterJdbcTemplate(pool));
+            transactionTemplates.put(name, new TransactionTemplate(new DataSourceTransactionManager(pool)));
+        });
+    }
+
+    /**
+     * Starts a rebalance in the background.
+     * @return false if one is already running
+     */
+    public boolean start() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        moved.set(0);
+        Thread.ofVirtual().name("shard-rebalancer").start(() -> {
+            try {
+                rebalance();
+            } catch (RuntimeException e) {
+                log.error("shard rebalance failed after moving {} carts", moved.get(), e);
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public long movedCarts() {
+        return moved.get();
+    }
+
+    void rebalance() {
+        for (String source : jdbcTemplates.keySet()) {
+            // uuid columns compare unsigned, so the nil UUID sorts first
+            UUID after = new UUID(0, 0);
+            List<Map<String, Object>> page;
+            do {
+                page = jdbcTemplates.get(source).queryForList(
+                        "select cart_id, user_id from carts where cart_id > :after order by cart_id limit :limit",
+                        new MapSqlParameterSource("after", after).addValue("limit", batchSize));
+                if (page.isEmpty()) {
+                    break;
+                }
+                after = (UUID) page.get(page.size() - 1).get("cart_id");
+                Map<String, Map<UUID, UUID>> misplaced = new LinkedHashMap<>();
+                for (Map<String, Object> row : page) {
+                    UUID userId = (UUID) row.get("user_id");
+                    String target = router.ring().shardFor(userId);
+                    if (!target.equals(source)) {
+                        misplaced.computeIfAbsent(target, t -> new LinkedHashMap<>()).put((UUID) row.get("cart_id"), userId);
+                    }
+                }
+                misplaced.forEach((target, carts) -> moveBatch(source, target, carts));
+            } while (page.size() == batchSize);
+        }
+        log.info("shard rebalance finished, moved {} carts", moved.get());
+    }
+
+    private void moveBatch(String source, String target, Map<UUID, UUID> usersByCart) {
+        List<ReentrantLock> held = new ArrayList<>();
+        List<UUID> cartIds = new ArrayList<>();
+        try {
+            for (Map.Entry<UUID, UUID> cart : usersByCart.entrySet()) {
+                ReentrantLock lock = cartLocks.acquire(cart.getValue());
+                if (lock == null) {
+                    log.warn("skipping busy cart {} of user {}, it moves on the next run", cart.getKey(), cart.getValue());
+                    continue;
+                }
+                held.add(lock);
+                cartIds.add(cart.getKey());
+            }
+            if (!cartIds.isEmpty()) {
+                copy(source, target, cartIds);
+                delete(source, cartIds);
+                moved.addAndGet(cartIds.size());
+                log.debug("moved {} carts from {} to {}", cartIds.size(), source, target);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Shard rebalance interrupted", e);
+        } finally {
+            held.forEach(ReentrantLock::unlock);
+        }
+    }
+
+    private void copy(String source, String target, List<UUID> cartIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("cartIds", cartIds);
+        Map<String, List<Map<String, Object>>> rows = new LinkedHashMap<>();
+        for (String table : TABLES) {
+            rows.put(table, jdbcTemplates.get(source).queryForList(
+                    "select * from " + table + " where cart_id in (:cartIds)", ids));
+        }
+        NamedParameterJdbcTemplate targetJdbc = jdbcTemplates.get(target);
+        transactionTemplates.get(target).executeWithoutResult(status -> {
+            // Leftovers of an interrupted earlier run
+            targetJdbc.update("delete from cart_item where cart_id in (:cartIds)", ids);
+            targetJdbc.update("delete from carts where cart_id in (:cartIds)", ids);
+            rows.forEach((table, tableRows) -> insert(targetJdbc, table, tableRows));
+        });
+    }
+
+    private void insert(NamedParameterJdbcTemplate jdbc, String table, List<Map<String, Object>> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        List<String> columns = new ArrayList<>(rows.get(0).keySet());
+        String sql = "insert into " + table + " (" + String.join(", ", columns) + ") values ("
+                + columns.stream().map(column -> ":" + column).collect(Collectors.joining(", ")) + ")";
+        jdbc.batchUpdate(sql, rows.stream().map(MapSqlParameterSource::new).toArray(MapSqlParameterSource[]::new));
+    }
+
+    private void delete(String source, List<UUID> cartIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("cartIds", cartIds);
+        NamedParameterJdbcTemplate sourceJdbc = jdbcTemplates.get(source);
+        transactionTemplates.get(source).executeWithoutResult(status -> {
+            sourceJdbc.update("delete from cart_item where cart_id in (:cartIds)", ids);
+            sourceJdbc.update("delete from carts where cart_id in (:cartIds)", ids);
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.mazadak.cart_service.shard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Picks the shard that holds a user's cart.
+ * While a ring change is being rebalanced, a cart that has not been moved yet is still served
+ * from the shard the previous ring put it on. A user without a cart there gets a new one on the current
+ * ring's shard only.
+ */
+public class ShardRouter {
+
+    private final ShardRing ring;
+
+    private final ShardRing previousRing;
+
+    private final Map<String, JdbcTemplate> jdbcTemplates = new HashMap<>();
+
+    public ShardRouter(ShardRing ring, ShardRing previousRing, ShardDataSources shards) {
+        this.ring = ring;
+        this.previousRing = previousRing;
+        shards.pools().forEach((name, pool) -> jdbcTemplates.put(name, new JdbcTemplate(pool)));
+    }
+
+    public String shardFor(UUID userId) {
+        String target = ring.shardFor(userId);
+        if (previousRing == null) {
+            return target;
+        }
+        String previous = previousRing.shardFor(userId);
+        if (previous.equals(target) || !hasCart(previous, userId)) {
+            return target;
+        }
+        return previous;
+    }
+
+    /**
+     * @return true if the two rings put the user's cart on different shards, i.e. the rebalancer may move it
+     */
+    public boolean isMoving(UUID userId) {
+        return previousRing != null && !previousRing.shardFor(userId).equals(ring.shardFor(userId));
+    }
+
+    public <T> T callFor(UUID userId, Supplier<T> action) {
+        return ShardContext.callOn(shardFor(userId), action);
+    }
+
+    public ShardRing ring() {
+        return ring;
+    }
+
+    public ShardRing previousRing() {
+        return previousRing;
+    }
+
+    private boolean hasCart(String shard, UUID userId) {
+        return Boolean.TRUE.equals(jdbcTemplates.get(shard).queryForObject(
+                "select exists (select 1 from carts where user_id = ?)", Boolean.class, userId));
+    }
+}
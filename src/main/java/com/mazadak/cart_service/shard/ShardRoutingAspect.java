@@ -0,0 +1,73 @@
+package com.mazadak.cart_service.shard;
+
+import com.mazadak.cart_service.exception.CartBusyException;
+import com.mazadak.cart_service.lock.StripedCartLocks;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Binds each cart service call to the shard of the user it is made for.
+ * Runs outside the transaction advice, so the transaction opens on the right shard.
+ * A call for a cart the rebalancer may move, reads included, holds the cart's write lock from routing
+ * to commit: the cart cannot leave its shard in between, so a read never finds it gone and creates
+ * a second one on the old shard.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 2)
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardRoutingAspect {
+
+    private final ShardRouter router;
+
+    private final StripedCartLocks cartLocks;
+
+    @Around("execution(public * com.mazadak.cart_service.service.CartService+.*(..))")
+    public Object route(ProceedingJoinPoint joinPoint) throws Throwable {
+        UUID userId = findUserId(joinPoint.getArgs());
+        // Nested calls stay on the shard the outer call opened
+        if (userId == null || ShardContext.current() != null) {
+            return joinPoint.proceed();
+        }
+        if (!router.isMoving(userId)) {
+            return proceedOn(router.shardFor(userId), joinPoint);
+        }
+        ReentrantLock lock = cartLocks.acquire(userId);
+        if (lock == null) {
+            throw new CartBusyException("Cart is being moved to another shard, please retry");
+        }
+        try {
+            return proceedOn(router.shardFor(userId), joinPoint);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Object proceedOn(String shard, ProceedingJoinPoint joinPoint) throws Throwable {
+        ShardContext.set(shard);
+        try {
+            return joinPoint.proceed();
+        } finally {
+            ShardContext.restore(null);
+        }
+    }
+
+    private UUID findUserId(Object[] args) {
+        for (Object arg : args) {
+            if (arg instanceof UUID uuid) {
+                return uuid;
+            }
+        }
+        return null;
+    }
+}
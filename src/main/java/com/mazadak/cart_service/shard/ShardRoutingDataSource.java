@@ -0,0 +1,23 @@
+package com.mazadak.cart_service.shard;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import java.util.HashMap;
+
+/**
+ * Hands out connections of the shard bound to {@link ShardContext}, or of the default shard
+ * for work that is not tied to a user, such as schema management at startup.
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    public ShardRoutingDataSource(ShardDataSources shards) {
+        setTargetDataSources(new HashMap<>(shards.pools()));
+        setDefaultTargetDataSource(shards.get(shards.defaultShard()));
+        setLenientFallback(false);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+}
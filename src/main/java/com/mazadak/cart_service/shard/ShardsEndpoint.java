@@ -0,0 +1,43 @@
+package com.mazadak.cart_service.shard;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shard ring status and rebalancing, exposed as {@code /actuator/shards}.
+ * POST starts moving carts to the shards the current ring assigns them to, so the endpoint is not exposed
+ * over HTTP by default.
+ */
+@Component
+@Endpoint(id = "shards")
+@ConditionalOnProperty(prefix = "cart.sharding", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ShardsEndpoint {
+
+    private final ShardRouter router;
+
+    private final ShardRebalancer rebalancer;
+
+    @ReadOperation
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("ring", router.ring().shards());
+        status.put("previousRing", router.previousRing() == null ? null : router.previousRing().shards());
+        status.put("rebalancing", rebalancer.isRunning());
+        status.put("movedCarts", rebalancer.movedCarts());
+        return status;
+    }
+
+    @WriteOperation
+    public Map<String, Object> rebalance() {
+        rebalancer.start();
+        return status();
+    }
+}
@@ -0,0 +1,81 @@
+package com.mazadak.cart_service.shedding;
+
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of requests allowed in flight, found by additive increase and multiplicative decrease:
+ * the limit shrinks by a ratio whenever a request is slower than the latency threshold, and grows by
+ * one for each fast request while at least half of it is used. The limit then settles around the
+ * concurrency the database and downstream services can take before queueing sets in.
+ */
+class AimdConcurrencyLimit {
+
+    private final int minLimit;
+
+    private final int maxLimit;
+
+    private final long thresholdNanos;
+
+    private final double backoffRatio;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    // Written under this, read without it
+    private volatile double limit;
+
+    AimdConcurrencyLimit(LoadSheddingProperties properties) {
+        this.minLimit = Math.max(1, properties.minLimit());
+        this.maxLimit = Math.max(minLimit, properties.maxLimit());
+        this.thresholdNanos = properties.latencyThreshold().toNanos();
+        this.backoffRatio = properties.backoffRatio();
+        this.limit = Math.clamp(properties.initialLimit(), minLimit, maxLimit);
+    }
+
+    /**
+     * @return whether the request may proceed; if so it must be followed by {@link #release}
+     */
+    boolean tryAcquire() {
+        int limit = limit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param latencyNanos how long the request took
+     * @param dropped whether it failed in a way that suggests overload
+     */
+    void release(long latencyNanos, boolean dropped) {
+        int current = inFlight.getAndDecrement();
+        synchronized (this) {
+            if (dropped || latencyNanos > thresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (current * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+        }
+    }
+
+    /**
+     * Ends a request without letting it adjust the limit.
+     */
+    void releaseUnsampled() {
+        inFlight.decrementAndGet();
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,168 @@
+package com.mazadak.cart_service.shedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+import com.mazadak.cart_service.exception.BulkheadFullException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.DispatcherServlet;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rejects cart requests up front rather than letting them queue on the connection pools:
+ * <ul>
+ *     <li>429 when the user has exceeded their request rate</li>
+ *     <li>503 when the database pools, or for requests calling the product catalog the client pool,
+ *     already have waiters</li>
+ *     <li>503 when more requests are in flight than the adaptive concurrency limit; requests calling the
+ *     product catalog are left to its bulkhead instead, so a slow catalog does not hold back the others</li>
+ * </ul>
+ * Every rejection carries {@code Retry-After} and is counted in {@code cart.load.shed} by reason.
+ * Internal endpoints such as the export run long on purpose and are left alone.
+ */
+@Component
+@ConditionalOnProperty(prefix = "cart.load-shedding", name = "enabled", havingValue = "true")
+@Slf4j
+public class LoadSheddingFilter extends OncePerRequestFilter {
+
+    private final AimdConcurrencyLimit concurrencyLimit;
+
+    private final UserRateLimiter userRateLimiter;
+
+    private final PoolSaturation poolSaturation;
+
+    private final ObjectMapper objectMapper;
+
+    private final long retryAfterSeconds;
+
+    private final Counter userRateShed;
+
+    private final Counter databaseShed;
+
+    private final Counter clientPoolShed;
+
+    private final Counter concurrencyShed;
+
+    public LoadSheddingFilter(LoadSheddingProperties properties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.concurrencyLimit = new AimdConcurrencyLimit(properties);
+        this.userRateLimiter = new UserRateLimiter(properties);
+        this.poolSaturation = new PoolSaturation(properties, meterRegistry);
+        this.objectMapper = objectMapper;
+        this.retryAfterSeconds = Math.max(1, properties.retryAfter().toSeconds());
+        this.userRateShed = shedCounter("user-rate", meterRegistry);
+        this.databaseShed = shedCounter("db-pool", meterRegistry);
+        this.clientPoolShed = shedCounter("client-pool", meterRegistry);
+        this.concurrencyShed = shedCounter("concurrency", meterRegistry);
+        Gauge.builder("cart.concurrency.limit", concurrencyLimit, AimdConcurrencyLimit::limit)
+                .description("Cart requests currently allowed in flight")
+                .register(meterRegistry);
+        Gauge.builder("cart.concurrency.in.flight", concurrencyLimit, AimdConcurrencyLimit::inFlight)
+                .description("Cart requests in flight")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = path(request);
+        return !path.startsWith("/carts") || path.startsWith("/carts/internal/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String user = user(request);
+        if (user != null) {
+            long waitNanos = userRateLimiter.tryTake(user);
+            if (waitNanos > 0) {
+                userRateShed.increment();
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)),
+                        "Too many cart requests, please slow down");
+                return;
+            }
+        }
+        if (poolSaturation.isDatabaseSaturated()) {
+            databaseShed.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Cart service is overloaded, please retry");
+            return;
+        }
+        if (callsProductCatalog(request)) {
+            // Left out of the concurrency limit, so a slow catalog cannot shrink it for database-only requests;
+            // the product-catalog bulkhead bounds these instead
+            if (poolSaturation.isClientPoolSaturated()) {
+                clientPoolShed.increment();
+                reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Product catalog is overloaded, please retry");
+                return;
+            }
+            filterChain.doFilter(request, response);
+            return;
+        }
+        if (!concurrencyLimit.tryAcquire()) {
+            concurrencyShed.increment();
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, "Cart service is overloaded, please retry");
+            return;
+        }
+        long start = System.nanoTime();
+        boolean dropped = true;
+        try {
+            filterChain.doFilter(request, response);
+            dropped = response.getStatus() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                    || response.getStatus() == HttpStatus.GATEWAY_TIMEOUT.value();
+        } finally {
+            // A full bulkhead says nothing about how fast requests run, however long it was waited for
+            if (request.getAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE) instanceof BulkheadFullException) {
+                concurrencyLimit.releaseUnsampled();
+            } else {
+                concurrencyLimit.release(System.nanoTime() - start, dropped);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String detail)
+            throws IOException {
+        log.debug("shedding request with {}: {}", status.value(), detail);
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_PROBLEM_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), ProblemDetail.forStatusAndDetail(status, detail));
+    }
+
+    private static String user(HttpServletRequest request) {
+        String user = request.getHeader("X-User-Id");
+        return user != null ? user : request.getHeader("X-Guest-Id");
+    }
+
+    // Decoded and without matrix parameters, as MVC maps it
+    private static String path(HttpServletRequest request) {
+        return UrlPathHelper.defaultInstance.getPathWithinApplication(request);
+    }
+
+    // Detailed items fetch product summaries, adding an item may look up its price
+    private static boolean callsProductCatalog(HttpServletRequest request) {
+        String path = path(request);
+        return path.endsWith("/items/detailed")
+                || "POST".equals(request.getMethod()) && (path.equals("/carts/items") || path.equals("/carts/guest/items"));
+    }
+
+    private static Counter shedCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("cart.load.shed")
+                .description("Cart requests rejected before reaching the controller")
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+}
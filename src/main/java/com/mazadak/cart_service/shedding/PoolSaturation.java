@@ -0,0 +1,68 @@
+package com.mazadak.cart_service.shedding;
+
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tells whether the database pools or the Feign client pool, shared by the product catalog and
+ * inventory clients, have a queue of waiters, as read from their pool gauges. The gauges are sampled
+ * by whichever request asks first once the last sample is older than the interval, so a check is
+ * usually a volatile read. Hikari refreshes its pool statistics about once a second, which is how late
+ * shedding on the database pools may start; the concurrency limit reacts in the meantime.
+ */
+class PoolSaturation {
+
+    private static final long SAMPLE_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final MeterRegistry meterRegistry;
+
+    private final int dbMaxPending;
+
+    private final int clientMaxPending;
+
+    private final AtomicLong sampledAt = new AtomicLong(System.nanoTime() - SAMPLE_INTERVAL_NANOS);
+
+    private volatile boolean databaseSaturated;
+
+    private volatile boolean clientPoolSaturated;
+
+    PoolSaturation(LoadSheddingProperties properties, MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.dbMaxPending = properties.dbMaxPending();
+        this.clientMaxPending = properties.clientMaxPending();
+    }
+
+    boolean isDatabaseSaturated() {
+        sample();
+        return databaseSaturated;
+    }
+
+    boolean isClientPoolSaturated() {
+        sample();
+        return clientPoolSaturated;
+    }
+
+    private void sample() {
+        long last = sampledAt.get();
+        long now = System.nanoTime();
+        if (now - last < SAMPLE_INTERVAL_NANOS || !sampledAt.compareAndSet(last, now)) {
+            return;
+        }
+        // Any pool, since a request does not know which shard or replica it will use before it runs
+        databaseSaturated = maxPending(meterRegistry.find("hikaricp.connections.pending").gauges()) > dbMaxPending;
+        clientPoolSaturated = maxPending(meterRegistry.find("httpcomponents.httpclient.pool.total.pending")
+                .tag("httpclient", "feign").gauges()) > clientMaxPending;
+    }
+
+    private static double maxPending(Iterable<Gauge> gauges) {
+        double max = 0;
+        for (Gauge gauge : gauges) {
+            max = Math.max(max, gauge.value());
+        }
+        return max;
+    }
+}
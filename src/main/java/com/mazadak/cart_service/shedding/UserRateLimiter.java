@@ -0,0 +1,59 @@
+package com.mazadak.cart_service.shedding;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+
+import java.time.Duration;
+
+/**
+ * A token bucket per user, refilled at the user rate up to the burst size.
+ * Buckets of users idle long enough to have refilled completely are dropped.
+ */
+class UserRateLimiter {
+
+    private final double tokensPerNano;
+
+    private final int burst;
+
+    private final Cache<String, TokenBucket> buckets;
+
+    UserRateLimiter(LoadSheddingProperties properties) {
+        this.tokensPerNano = properties.userRate() / 1_000_000_000d;
+        this.burst = Math.max(1, properties.userBurst());
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.maxTrackedUsers())
+                .expireAfterAccess(Duration.ofNanos((long) (burst / tokensPerNano)))
+                .build();
+    }
+
+    /**
+     * Takes a token from the user's bucket.
+     * @return 0 if one was taken, otherwise the nanoseconds until the next one is available
+     */
+    long tryTake(String user) {
+        return buckets.get(user, key -> new TokenBucket(burst, System.nanoTime())).tryTake(System.nanoTime());
+    }
+
+    private final class TokenBucket {
+
+        private double tokens;
+
+        private long refilledAt;
+
+        private TokenBucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.refilledAt = now;
+        }
+
+        synchronized long tryTake(long now) {
+            tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+            refilledAt = now;
+            if (tokens >= 1) {
+                tokens--;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.mazadak.cart_service.snapshot;
+
+import com.mazadak.cart_service.model.ProductSnapshot;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes product snapshots to every cart item of the product, one statement per product.
+ * A snapshot only replaces an older one, so late or repeated writes never roll a newer one back.
+ */
+@Component
+public class ProductSnapshotWriter {
+
+    private static final String UPDATE_SNAPSHOT = """
+            UPDATE cart_item SET
+                product_title = :title,
+                product_description = :description,
+                product_price = :price,
+                product_image = :primaryImage,
+                snapshot_version = :version,
+                snapshot_taken_at = :takenAt
+            WHERE product_id = :productId AND (snapshot_version IS NULL OR snapshot_version < :version)
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final ObjectProvider<ShardDataSources> shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public ProductSnapshotWriter(NamedParameterJdbcTemplate jdbcTemplate, ObjectProvider<ShardDataSources> shards,
+                                 PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Writes the snapshots on the current shard, for items just read from it.
+     * @return the number of cart items updated
+     */
+    public int write(Map<UUID, ProductSnapshot> snapshots) {
+        List<MapSqlParameterSource> updates = params(snapshots);
+        int[] updated = transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate(UPDATE_SNAPSHOT, updates.toArray(MapSqlParameterSource[]::new)));
+        int total = 0;
+        for (int rows : updated) {
+            total += Math.max(rows, 0);
+        }
+        return total;
+    }
+
+    /**
+     * Writes the snapshots on every shard, a transaction per chunk of products.
+     * @return the number of cart items updated
+     */
+    public int writeEverywhere(Map<UUID, ProductSnapshot> snapshots, int chunkSize) {
+        List<Map.Entry<UUID, ProductSnapshot>> entries = new ArrayList<>(snapshots.entrySet());
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        Collection<String> names = shardDataSources == null ? List.of() : shardDataSources.names();
+        int updated = 0;
+        for (int from = 0; from < entries.size(); from += chunkSize) {
+            Map<UUID, ProductSnapshot> chunk = toMap(entries.subList(from, Math.min(from + chunkSize, entries.size())));
+            if (names.isEmpty()) {
+                updated += write(chunk);
+            }
+            for (String shard : names) {
+                updated += ShardContext.callOn(shard, () -> write(chunk));
+            }
+        }
+        return updated;
+    }
+
+    private static Map<UUID, ProductSnapshot> toMap(List<Map.Entry<UUID, ProductSnapshot>> entries) {
+        Map<UUID, ProductSnapshot> map = new LinkedHashMap<>();
+        entries.forEach(entry -> map.put(entry.getKey(), entry.getValue()));
+        return map;
+    }
+
+    private static List<MapSqlParameterSource> params(Map<UUID, ProductSnapshot> snapshots) {
+        List<MapSqlParameterSource> params = new ArrayList<>(snapshots.size());
+        snapshots.forEach((productId, snapshot) -> params.add(new MapSqlParameterSource()
+                .addValue("productId", productId)
+                .addValue("title", snapshot.title())
+                .addValue("description", snapshot.description())
+                .addValue("price", snapshot.price())
+                .addValue("primaryImage", snapshot.primaryImage())
+                .addValue("version", snapshot.version())
+                .addValue("takenAt", snapshot.takenAt())));
+        return params;
+    }
+}
@@ -0,0 +1,94 @@
+package com.mazadak.cart_service.totals;
+
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Computes the stored totals of carts created before the totals columns existed, a chunk of carts per
+ * transaction, in the background after startup. Carts written meanwhile get their totals from the write,
+ * and the summary of a cart not reached yet is computed from its items, so nothing waits for it.
+ * Once every cart has its totals, a run costs one statement per shard.
+ */
+@Component
+@Slf4j
+public class CartTotalsBackfill implements SmartLifecycle {
+
+    static final int CHUNK = 1000;
+
+    private final CartRepository cartRepository;
+
+    private final ObjectProvider<ShardDataSources> shards;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private volatile boolean running;
+
+    private volatile boolean stopped;
+
+    public CartTotalsBackfill(CartRepository cartRepository, ObjectProvider<ShardDataSources> shards,
+                              PlatformTransactionManager transactionManager) {
+        this.cartRepository = cartRepository;
+        this.shards = shards;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        Thread.ofVirtual().name("cart-totals-backfill").start(() -> {
+            try {
+                backfill();
+            } catch (RuntimeException e) {
+                log.error("cart totals backfill failed, it resumes on the next start", e);
+            }
+        });
+    }
+
+    @Override
+    public void stop() {
+        stopped = true;
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return the number of carts given their totals
+     */
+    long backfill() {
+        ShardDataSources shardDataSources = shards.getIfAvailable();
+        Collection<String> names = shardDataSources == null ? List.of() : shardDataSources.names();
+        long updated = names.isEmpty() ? backfillShard() : 0;
+        for (String shard : names) {
+            updated += ShardContext.callOn(shard, this::backfillShard);
+        }
+        if (updated > 0) {
+            log.info("computed the totals of {} carts", updated);
+        }
+        return updated;
+    }
+
+    private long backfillShard() {
+        long updated = 0;
+        int chunk;
+        do {
+            Integer rows = transactionTemplate.execute(status -> cartRepository.backfillTotals(CHUNK));
+            chunk = rows != null ? rows : 0;
+            updated += chunk;
+        } while (chunk > 0 && !stopped);
+        return updated;
+    }
+}
@@ -0,0 +1,152 @@
+package com.mazadak.cart_service.warmup;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.config.CartWarmupProperties;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardRouter;
+import com.netflix.appinfo.ApplicationInfoManager;
+import com.netflix.appinfo.InstanceInfo;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs synthetic cart traffic through the local HTTP stack before the instance is released.
+ * Boot only reports readiness once ApplicationReadyEvent listeners return, and Eureka registers the
+ * instance as STARTING ({@code eureka.instance.initial-status}) until this marks it UP.
+ * Product-catalog is never called: the warm-up product is put in the snapshot cache up front, and the
+ * product batch decoding is exercised on a canned response.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CartWarmup implements ApplicationListener<ApplicationReadyEvent> {
+
+    private static final int BATCH_SIZE = 50;
+
+    private static final int REQUESTS_PER_ITERATION = 7;
+
+    private static final TypeReference<List<ProductSummaryDTO>> PRODUCT_BATCH = new TypeReference<>() { };
+
+    private final CartWarmupProperties properties;
+
+    private final CartRepository cartRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final ProductSnapshotCache productSnapshots;
+
+    private final ObjectProvider<ApplicationInfoManager> applicationInfoManager;
+
+    private final ObjectProvider<ShardRouter> shardRouter;
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        if (properties.enabled() && event.getApplicationContext() instanceof WebServerApplicationContext context
+                && context.getWebServer() != null) {
+            try {
+                warmUp(context.getWebServer().getPort());
+            } catch (RuntimeException | IOException e) {
+                log.warn("warm-up failed, releasing instance anyway", e);
+            }
+        }
+        applicationInfoManager.ifAvailable(manager -> manager.setInstanceStatus(InstanceInfo.InstanceStatus.UP));
+    }
+
+    private void warmUp(int port) throws IOException {
+        UUID productId = UUID.randomUUID();
+        productSnapshots.putAll(List.of(
+                new ProductSummaryDTO(productId, "Warm-up product", null, new BigDecimal("19.99"), null)));
+        RestClient client = RestClient.builder()
+                .baseUrl("http://localhost:" + port + "/carts")
+                .build();
+        byte[] productBatch = cannedProductBatch();
+
+        log.info("starting warm-up with up to {} iterations", properties.iterations());
+        long started = System.nanoTime();
+        long deadline = started + properties.maxDuration().toNanos();
+        int iterations = 0;
+        while (iterations < properties.iterations() && System.nanoTime() < deadline) {
+            long batchStart = System.nanoTime();
+            int batch = Math.min(BATCH_SIZE, properties.iterations() - iterations);
+            for (int i = 0; i < batch; i++) {
+                // A fresh user per iteration stays well inside the per-user rate limit of the load shedder
+                UUID userId = UUID.randomUUID();
+                try {
+                    runIteration(client, userId, productId, productBatch);
+                } finally {
+                    deleteCart(userId);
+                }
+            }
+            iterations += batch;
+            long perRequest = (System.nanoTime() - batchStart) / ((long) batch * REQUESTS_PER_ITERATION);
+            if (properties.targetLatency() != null && perRequest <= properties.targetLatency().toNanos()) {
+                log.info("warm-up reached target latency: {} us per request", perRequest / 1_000);
+                break;
+            }
+        }
+        log.info("warm-up finished after {} iterations in {} ms", iterations, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    private void deleteCart(UUID userId) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            cartRepository.findCartByUserId(userId).ifPresent(cartRepository::delete);
+            return;
+        }
+        router.callFor(userId, () -> {
+            cartRepository.findCartByUserId(userId).ifPresent(cartRepository::delete);
+            return null;
+        });
+    }
+
+    private void runIteration(RestClient client, UUID userId, UUID productId, byte[] productBatch) throws IOException {
+        String user = userId.toString();
+        client.post().uri("/items").header("X-User-Id", user).contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("productId", productId, "quantity", 2))
+                .retrieve().toBodilessEntity();
+        client.put().uri("/items/{productId}", productId).header("X-User-Id", user).contentType(MediaType.APPLICATION_JSON)
+                .body(Map.of("quantity", 3))
+                .retrieve().toBodilessEntity();
+        client.patch().uri("/items/reduce/{productId}?quantity=1", productId).header("X-User-Id", user)
+                .retrieve().toBodilessEntity();
+        client.get().header("X-User-Id", user).retrieve().toBodilessEntity();
+        client.get().uri("/items").header("X-User-Id", user).retrieve().toBodilessEntity();
+        client.get().uri("/is-active").header("X-User-Id", user).retrieve().toBodilessEntity();
+        client.delete().uri("/items/{productId}", productId).header("X-User-Id", user).retrieve().toBodilessEntity();
+        // Stands in for the product-catalog round trip of the detailed cart view
+        objectMapper.readValue(productBatch, PRODUCT_BATCH);
+    }
+
+    private byte[] cannedProductBatch() throws IOException {
+        List<Map<String, Object>> products = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            products.add(Map.of(
+                    "productId", UUID.randomUUID(),
+                    "sellerId", UUID.randomUUID(),
+                    "title", "Warm-up product " + i,
+                    "description", "Synthetic product used to warm up the product batch decoder",
+                    "price", "19.99",
+                    "images", List.of(
+                            Map.of("imageId", 1, "imageUri", "https://example.invalid/" + i + "/1.jpg", "isPrimary", false, "position", 1),
+                            Map.of("imageId", 2, "imageUri", "https://example.invalid/" + i + "/2.jpg", "isPrimary", true, "position", 2))));
+        }
+        return objectMapper.writeValueAsBytes(products);
+    }
+}
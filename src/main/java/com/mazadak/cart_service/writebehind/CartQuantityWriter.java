@@ -0,0 +1,58 @@
+package com.mazadak.cart_service.writebehind;
+
+import com.mazadak.cart_service.repository.CartRepository;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes a batch of buffered quantities and the totals of the carts they touch in one transaction.
+ */
+@Component
+class CartQuantityWriter {
+
+    private static final int TOTALS_CHUNK = 1000;
+
+    private static final String UPDATE_QUANTITY =
+            "UPDATE cart_item SET quantity = :quantity, updated_at = CURRENT_TIMESTAMP WHERE item_id = :itemId";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    private final CartRepository cartRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    CartQuantityWriter(NamedParameterJdbcTemplate jdbcTemplate, CartRepository cartRepository,
+                       PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cartRepository = cartRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Items deleted since their quantity was buffered are skipped, a re-added product is a new item.
+     * @param quantities latest quantity per cart item, per user
+     */
+    void write(Map<UUID, Map<UUID, Integer>> quantities) {
+        List<MapSqlParameterSource> updates = new ArrayList<>();
+        quantities.values().forEach(items -> items.forEach((itemId, quantity) ->
+                updates.add(new MapSqlParameterSource()
+                        .addValue("itemId", itemId)
+                        .addValue("quantity", quantity))));
+        List<UUID> userIds = new ArrayList<>(quantities.keySet());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_QUANTITY, updates.toArray(MapSqlParameterSource[]::new));
+            for (int from = 0; from < userIds.size(); from += TOTALS_CHUNK) {
+                cartRepository.refreshTotals(userIds.subList(from, Math.min(from + TOTALS_CHUNK, userIds.size())));
+            }
+        });
+    }
+}
@@ -0,0 +1,117 @@
+package com.mazadak.cart_service.writebehind;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only, memory-mapped file of quantity records.
+ * A record is seq, user id, cart item id and quantity followed by a CRC32C; reading stops at the first
+ * record whose checksum does not match, which also covers a record torn by a crash.
+ * Not thread-safe, callers serialize access.
+ */
+final class MutationJournal implements Closeable {
+
+    static final int RECORD_SIZE = 48;
+
+    private static final int PAYLOAD_SIZE = RECORD_SIZE - Integer.BYTES;
+
+    // Shared source for zeroing the used region, whole records at a time
+    private static final byte[] ZEROS = new byte[RECORD_SIZE * 128];
+
+    private final FileChannel channel;
+
+    private final MappedByteBuffer buffer;
+
+    private final boolean fsyncEachWrite;
+
+    private final CRC32C crc = new CRC32C();
+
+    private int position;
+
+    MutationJournal(Path file, int size, boolean fsyncEachWrite) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size - size % RECORD_SIZE);
+        this.fsyncEachWrite = fsyncEachWrite;
+        while (position + RECORD_SIZE <= buffer.capacity() && isValid(position)) {
+            position += RECORD_SIZE;
+        }
+    }
+
+    /**
+     * @return false if the journal is full
+     */
+    boolean append(long seq, UUID userId, UUID itemId, int quantity) {
+        if (position + RECORD_SIZE > buffer.capacity()) {
+            return false;
+        }
+        buffer.putLong(position, seq);
+        buffer.putLong(position + 8, userId.getMostSignificantBits());
+        buffer.putLong(position + 16, userId.getLeastSignificantBits());
+        buffer.putLong(position + 24, itemId.getMostSignificantBits());
+        buffer.putLong(position + 32, itemId.getLeastSignificantBits());
+        buffer.putInt(position + 40, quantity);
+        buffer.putInt(position + PAYLOAD_SIZE, checksum(position));
+        if (fsyncEachWrite) {
+            buffer.force(position, RECORD_SIZE);
+        }
+        position += RECORD_SIZE;
+        return true;
+    }
+
+    void forEach(Consumer<JournalRecord> consumer) {
+        for (int offset = 0; offset < position; offset += RECORD_SIZE) {
+            consumer.accept(new JournalRecord(
+                    buffer.getLong(offset),
+                    new UUID(buffer.getLong(offset + 8), buffer.getLong(offset + 16)),
+                    new UUID(buffer.getLong(offset + 24), buffer.getLong(offset + 32)),
+                    buffer.getInt(offset + 40)));
+        }
+    }
+
+    /**
+     * Discards every record. The used region is zeroed so no stale record can follow newer ones on replay.
+     */
+    void reset() {
+        for (int offset = 0; offset < position; offset += ZEROS.length) {
+            buffer.put(offset, ZEROS, 0, Math.min(ZEROS.length, position - offset));
+        }
+        if (fsyncEachWrite) {
+            buffer.force(0, position);
+        }
+        position = 0;
+    }
+
+    boolean isEmpty() {
+        return position == 0;
+    }
+
+    int usedBytes() {
+        return position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        buffer.force();
+        channel.close();
+    }
+
+    private boolean isValid(int offset) {
+        return buffer.getLong(offset) > 0 && buffer.getInt(offset + PAYLOAD_SIZE) == checksum(offset);
+    }
+
+    private int checksum(int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, PAYLOAD_SIZE));
+        return (int) crc.getValue();
+    }
+
+    record JournalRecord(long seq, UUID userId, UUID itemId, int quantity) { }
+}
@@ -0,0 +1,41 @@
+package com.mazadak.cart_service.writebehind;
+
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Flushes buffered quantity changes of a cart before any cart operation that does not go through the
+ * buffer, so reads see them and structural changes apply on top of them.
+ * Runs outside the transaction advice, the flush must not wait for a connection while holding one.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 3)
+@RequiredArgsConstructor
+public class WriteBehindAspect {
+
+    private final WriteBehindBuffer buffer;
+
+    @Around("execution(public * com.mazadak.cart_service.service.CartService+.*(..))"
+            + " && !execution(* com.mazadak.cart_service.service.CartService+.addItem(..))"
+            + " && !execution(* com.mazadak.cart_service.service.CartService+.updateItemQuantity(..))"
+            + " && !execution(* com.mazadak.cart_service.service.CartService+.reduceItemQuantity(..))")
+    public Object flushFirst(ProceedingJoinPoint joinPoint) throws Throwable {
+        if (buffer.isEnabled()) {
+            for (Object arg : joinPoint.getArgs()) {
+                if (arg instanceof UUID id && buffer.hasPending(id)) {
+                    buffer.flush();
+                    break;
+                }
+            }
+        }
+        return joinPoint.proceed();
+    }
+}
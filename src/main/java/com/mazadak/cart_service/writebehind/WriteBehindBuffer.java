@@ -0,0 +1,365 @@
+package com.mazadak.cart_service.writebehind;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.config.ShardingProperties;
+import com.mazadak.cart_service.config.WriteBehindProperties;
+import com.mazadak.cart_service.exception.CartBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Buffers cart item quantity changes in memory and writes them to the database in coalesced batches.
+ * <p>
+ * A change is acknowledged once it is in the memory-mapped journal, so it survives a crash of the JVM;
+ * with {@code fsync-each-write} it also survives a crash of the host. Changes not yet flushed are lost
+ * only if the journal files themselves are lost. Records hold absolute quantities keyed by cart item,
+ * so replaying them in sequence order is safe; a flush leaves no record behind that it has written.
+ * <p>
+ * Two journals alternate: a flush moves appends to the idle journal and empties the other one once its
+ * batch is committed.
+ * <p>
+ * Buffered changes are only visible to this instance, so the gateway must route all of a user's requests
+ * to one instance (the {@code affinity-key} in the Eureka metadata).
+ */
+@Component
+@Slf4j
+public class WriteBehindBuffer implements SmartLifecycle {
+
+    private final WriteBehindProperties properties;
+
+    private final CartWriteLockProperties lockProperties;
+
+    private final ShardingProperties shardingProperties;
+
+    private final CartQuantityWriter writer;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final Timer flushLag;
+
+    private final DistributionSummary flushBatchSize;
+
+    private final Counter flushFailures;
+
+    // Guarded by appendLock
+    private Map<UUID, Map<UUID, Pending>> pending = new HashMap<>();
+
+    private Map<UUID, Map<UUID, Pending>> inFlight = Map.of();
+
+    private int pendingCount;
+
+    private long lastSeq;
+
+    private MutationJournal active;
+
+    private MutationJournal standby;
+
+    private ScheduledExecutorService flusher;
+
+    private volatile boolean running;
+
+    public WriteBehindBuffer(WriteBehindProperties properties, CartWriteLockProperties lockProperties,
+                             ShardingProperties shardingProperties, CartQuantityWriter writer,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.lockProperties = lockProperties;
+        this.shardingProperties = shardingProperties;
+        this.writer = writer;
+        this.flushLag = Timer.builder("cart.write.behind.flush.lag")
+                .description("Age of the oldest change in a batch when the batch is committed")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushBatchSize = DistributionSummary.builder("cart.write.behind.flush.batch.size")
+                .description("Cart items written by one flush")
+                .baseUnit("items")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("cart.write.behind.flush.failures")
+                .description("Flushes that failed and were kept for the next attempt")
+                .register(meterRegistry);
+        Gauge.builder("cart.write.behind.pending", this, buffer -> buffer.pendingCount)
+                .description("Changed cart items waiting to be flushed")
+                .register(meterRegistry);
+        Gauge.builder("cart.write.behind.journal.used", this, buffer -> buffer.active == null ? 0 : buffer.active.usedBytes())
+                .description("Bytes used in the journal receiving appends")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    /**
+     * Buffers the new quantity of an item already in the user's cart.
+     * Callers hold the cart write lock.
+     * @throws CartBusyException if the journal is full
+     */
+    public void record(UUID userId, UUID itemId, int quantity) {
+        appendLock.lock();
+        try {
+            if (!active.append(lastSeq + 1, userId, itemId, quantity)) {
+                log.warn("write-behind journal is full");
+                throw new CartBusyException("Cart updates are backing up, please retry");
+            }
+            lastSeq++;
+            Map<UUID, Pending> items = pending.computeIfAbsent(userId, id -> new HashMap<>());
+            Pending previous = items.get(itemId);
+            if (previous == null) {
+                pendingCount++;
+            }
+            items.put(itemId, new Pending(quantity, previous == null ? System.nanoTime() : previous.since()));
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return the latest quantity buffered for the item, or null if the stored one is current
+     */
+    public Integer bufferedQuantity(UUID userId, UUID itemId) {
+        appendLock.lock();
+        try {
+            Pending buffered = find(pending, userId, itemId);
+            if (buffered == null) {
+                // Not committed yet either
+                buffered = find(inFlight, userId, itemId);
+            }
+            return buffered == null ? null : buffered.quantity();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the user's cart has changes that are buffered or being flushed
+     */
+    public boolean hasPending(UUID userId) {
+        appendLock.lock();
+        try {
+            return pending.containsKey(userId) || inFlight.containsKey(userId);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Writes everything buffered so far. Runs on the flusher thread, and on request threads that
+     * need to read or restructure a cart with buffered changes.
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            appendLock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                inFlight = pending;
+                pending = new HashMap<>();
+                pendingCount = 0;
+                if (!standby.isEmpty()) {
+                    // A failed flush left records in the idle journal: write with appends held off so that
+                    // both journals are covered by this batch
+                    try {
+                        write();
+                        active.reset();
+                        standby.reset();
+                    } finally {
+                        inFlight = Map.of();
+                    }
+                    return;
+                }
+                MutationJournal idle = standby;
+                standby = active;
+                active = idle;
+            } finally {
+                appendLock.unlock();
+            }
+            try {
+                write();
+                appendLock.lock();
+                try {
+                    // Every record in it predates the batch, so the batch covers it
+                    standby.reset();
+                } finally {
+                    appendLock.unlock();
+                }
+            } finally {
+                appendLock.lock();
+                try {
+                    inFlight = Map.of();
+                } finally {
+                    appendLock.unlock();
+                }
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void write() {
+        Map<UUID, Map<UUID, Pending>> batch = inFlight;
+        try {
+            writer.write(quantities(batch));
+        } catch (RuntimeException e) {
+            flushFailures.increment();
+            appendLock.lock();
+            try {
+                // Newer changes buffered while the batch was in flight win
+                batch.forEach((userId, items) -> items.forEach((itemId, change) -> {
+                    if (pending.computeIfAbsent(userId, id -> new HashMap<>()).putIfAbsent(itemId, change) == null) {
+                        pendingCount++;
+                    }
+                }));
+                inFlight = Map.of();
+            } finally {
+                appendLock.unlock();
+            }
+            throw e;
+        }
+        long oldest = Long.MAX_VALUE;
+        int items = 0;
+        for (Map<UUID, Pending> changes : batch.values()) {
+            for (Pending change : changes.values()) {
+                oldest = Math.min(oldest, change.since());
+                items++;
+            }
+        }
+        flushLag.record(System.nanoTime() - oldest, TimeUnit.NANOSECONDS);
+        flushBatchSize.record(items);
+    }
+
+    @Override
+    public void start() {
+        if (properties.enabled()) {
+            if (!lockProperties.enabled()) {
+                throw new IllegalStateException("cart.write-behind needs cart.write-lock to be enabled");
+            }
+            if (shardingProperties.enabled()) {
+                throw new IllegalStateException("cart.write-behind and cart.sharding cannot be enabled together");
+            }
+            openJournals();
+            recover();
+            flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("cart-write-behind").daemon().factory());
+            long interval = properties.flushInterval().toNanos();
+            flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.NANOSECONDS);
+            log.info("write-behind enabled, flushing every {}; requires user affinity at the gateway",
+                    properties.flushInterval());
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+            flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("final write-behind flush failed, the journal will be replayed on the next start", e);
+        }
+        try {
+            active.close();
+            standby.close();
+        } catch (IOException e) {
+            log.warn("could not close write-behind journals", e);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Recovers before the web server takes traffic and flushes after it stopped
+    @Override
+    public int getPhase() {
+        return 0;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("write-behind flush failed, retrying on the next tick", e);
+        }
+    }
+
+    private void openJournals() {
+        try {
+            Files.createDirectories(properties.journalDir());
+            int size = (int) Math.min(Integer.MAX_VALUE, properties.journalSize().toBytes());
+            active = new MutationJournal(properties.journalDir().resolve("cart-journal-0"), size, properties.fsyncEachWrite());
+            standby = new MutationJournal(properties.journalDir().resolve("cart-journal-1"), size, properties.fsyncEachWrite());
+        } catch (IOException e) {
+            throw new UncheckedIOException("could not open write-behind journals in " + properties.journalDir(), e);
+        }
+    }
+
+    // Runs before the web server starts, a failure here keeps the service from starting with stale carts
+    private void recover() {
+        List<MutationJournal.JournalRecord> records = new ArrayList<>();
+        active.forEach(records::add);
+        standby.forEach(records::add);
+        if (records.isEmpty()) {
+            return;
+        }
+        records.sort(Comparator.comparingLong(MutationJournal.JournalRecord::seq));
+        Map<UUID, Map<UUID, Pending>> replayed = new HashMap<>();
+        for (MutationJournal.JournalRecord record : records) {
+            replayed.computeIfAbsent(record.userId(), id -> new HashMap<>())
+                    .put(record.itemId(), new Pending(record.quantity(), System.nanoTime()));
+        }
+        lastSeq = records.getLast().seq();
+        writer.write(quantities(replayed));
+        active.reset();
+        standby.reset();
+        log.info("replayed {} write-behind journal records for {} carts", records.size(), replayed.size());
+    }
+
+    private static Pending find(Map<UUID, Map<UUID, Pending>> changes, UUID userId, UUID itemId) {
+        Map<UUID, Pending> items = changes.get(userId);
+        return items == null ? null : items.get(itemId);
+    }
+
+    private static Map<UUID, Map<UUID, Integer>> quantities(Map<UUID, Map<UUID, Pending>> changes) {
+        Map<UUID, Map<UUID, Integer>> quantities = new HashMap<>();
+        changes.forEach((userId, items) -> items.forEach((itemId, change) ->
+                quantities.computeIfAbsent(userId, id -> new HashMap<>()).put(itemId, change.quantity())));
+        return quantities;
+    }
+
+    /**
+     * @param since when the first change of the item still unflushed was buffered
+     */
+    private record Pending(int quantity, long since) { }
+}
@@ -2,8 +2,10 @@ package com.mazadak.cart_service;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.cloud.config.enabled=false")
+@ActiveProfiles("test")
 class CartServiceApplicationTests {
 
 	@Test
@@ -0,0 +1,51 @@
+package com.mazadak.cart_service.bulkhead;
+
+import com.mazadak.cart_service.config.BulkheadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Bulkheads Tests")
+class BulkheadsTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final Bulkheads bulkheads = new Bulkheads(new BulkheadProperties(true,
+            new BulkheadProperties.Limits(2, 0, Duration.ZERO),
+            new BulkheadProperties.Limits(1, 0, Duration.ZERO),
+            new BulkheadProperties.Limits(1, 0, Duration.ZERO)), meterRegistry);
+
+    @Test
+    @DisplayName("Should reject a full compartment without affecting the others")
+    void shouldIsolateCompartments() throws Exception {
+        // Arrange
+        assertThat(bulkheads.tryAcquire(Compartment.PRODUCT_CATALOG)).isTrue();
+
+        // Act
+        boolean catalogAgain = bulkheads.tryAcquire(Compartment.PRODUCT_CATALOG);
+        boolean database = bulkheads.tryAcquire(Compartment.DATABASE);
+
+        // Assert
+        assertThat(catalogAgain).isFalse();
+        assertThat(database).isTrue();
+        assertThat(meterRegistry.get("cart.bulkhead.rejected").tag("compartment", "product-catalog").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should admit a request again once a running one is released")
+    void shouldAdmitAfterRelease() throws Exception {
+        // Arrange
+        bulkheads.tryAcquire(Compartment.PRODUCT_CATALOG);
+
+        // Act
+        bulkheads.release(Compartment.PRODUCT_CATALOG);
+
+        // Assert
+        assertThat(bulkheads.tryAcquire(Compartment.PRODUCT_CATALOG)).isTrue();
+    }
+}
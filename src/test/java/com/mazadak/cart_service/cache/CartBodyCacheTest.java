@@ -0,0 +1,108 @@
+package com.mazadak.cart_service.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.config.CartCacheProperties;
+import com.mazadak.cart_service.model.Cart;
+import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.enums.Status;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Cart Body Cache Tests")
+class CartBodyCacheTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CartBodyCache bodyCache;
+
+    private CompactCart cart;
+
+    @BeforeEach
+    void setUp() {
+        bodyCache = new CartBodyCache(
+                new CartCacheProperties(true, DataSize.ofMegabytes(1), Duration.ofMinutes(1), DataSize.ofMegabytes(1), true),
+                objectMapper, meterRegistry);
+
+        Cart entity = new Cart();
+        entity.setCartId(UUID.randomUUID());
+        entity.setUserId(UUID.randomUUID());
+        entity.setStatus(Status.ACTIVE);
+        entity.setCartItems(new ArrayList<>());
+        for (int i = 0; i < 20; i++) {
+            CartItem item = new CartItem();
+            item.setItemId(UUID.randomUUID());
+            item.setProductId(UUID.randomUUID());
+            item.setQuantity(i + 1);
+            entity.getCartItems().add(item);
+        }
+        cart = CompactCart.of(entity);
+    }
+
+    @Test
+    @DisplayName("Should reuse the body until the cart version changes")
+    void shouldReuseBodyForSameVersion() throws Exception {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        MockHttpServletResponse changed = new MockHttpServletResponse();
+
+        // Act
+        bodyCache.write(userId, CartBodyCache.View.CART, cart, new MockHttpServletRequest(), first);
+        bodyCache.write(userId, CartBodyCache.View.CART, cart, new MockHttpServletRequest(), second);
+        bodyCache.write(userId, CartBodyCache.View.CART, cart.cleared(), new MockHttpServletRequest(), changed);
+
+        // Assert
+        assertThat(second.getContentAsByteArray()).isEqualTo(first.getContentAsByteArray());
+        assertThat(first.getContentAsString()).isEqualTo(objectMapper.writeValueAsString(cart.toCartResponseDTO()));
+        assertThat(changed.getContentAsString()).contains("\"cartItems\":[]");
+        assertThat(meterRegistry.get("cart.body.cache.requests").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should send the gzip copy to clients that accept it")
+    void shouldSendGzipWhenAccepted() throws Exception {
+        // Arrange
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("Accept-Encoding", "gzip, deflate");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        bodyCache.write(UUID.randomUUID(), CartBodyCache.View.ITEMS, cart, request, response);
+
+        // Assert
+        assertThat(response.getHeader("Content-Encoding")).isEqualTo("gzip");
+        byte[] json = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray())).readAllBytes();
+        assertThat(json).isEqualTo(objectMapper.writeValueAsBytes(cart.toItemDTOs()));
+    }
+
+    @Test
+    @DisplayName("Should leave CBOR requests to the message converters")
+    void shouldNotServeCbor() {
+        // Arrange
+        MockHttpServletRequest cbor = new MockHttpServletRequest();
+        cbor.addHeader("Accept", "application/cbor");
+        MockHttpServletRequest any = new MockHttpServletRequest();
+        any.addHeader("Accept", "*/*");
+
+        // Act & Assert
+        assertThat(bodyCache.serves(cbor)).isFalse();
+        assertThat(bodyCache.serves(any)).isTrue();
+        assertThat(bodyCache.serves(new MockHttpServletRequest())).isTrue();
+    }
+}
@@ -0,0 +1,74 @@
+package com.mazadak.cart_service.cache;
+
+import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
+import com.mazadak.cart_service.model.Cart;
+import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.enums.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Compact Cart Tests")
+class CompactCartTest {
+
+    private Cart cart;
+
+    private CartItem item;
+
+    @BeforeEach
+    void setUp() {
+        cart = new Cart();
+        cart.setCartId(UUID.randomUUID());
+        cart.setUserId(UUID.randomUUID());
+        cart.setStatus(Status.ACTIVE);
+        cart.setCartItems(new ArrayList<>());
+
+        item = new CartItem();
+        item.setItemId(UUID.randomUUID());
+        item.setProductId(UUID.randomUUID());
+        item.setQuantity(2);
+        cart.getCartItems().add(item);
+    }
+
+    @Test
+    @DisplayName("Should convert to the same response as the entity")
+    void shouldConvertToResponse() {
+        // Act
+        var response = CompactCart.of(cart).toCartResponseDTO();
+
+        // Assert
+        assertThat(response.cartId()).isEqualTo(cart.getCartId());
+        assertThat(response.userId()).isEqualTo(cart.getUserId());
+        assertThat(response.cartItems()).containsExactly(new CartItemResponseDTO(item.getItemId(), item.getProductId(), 2));
+    }
+
+    @Test
+    @DisplayName("Should copy on update and leave the original untouched")
+    void shouldCopyOnUpdate() {
+        // Arrange
+        CompactCart original = CompactCart.of(cart);
+        UUID newItemId = UUID.randomUUID();
+        UUID newProductId = UUID.randomUUID();
+
+        // Act
+        CompactCart updated = original
+                .withQuantity(item.getItemId(), item.getProductId(), 5)
+                .withQuantity(newItemId, newProductId, 1)
+                .withActive(false);
+        CompactCart removed = updated.without(item.getProductId());
+
+        // Assert
+        assertThat(original.toItemDTOs()).extracting(CartItemResponseDTO::quantity).containsExactly(2);
+        assertThat(original.isActive()).isTrue();
+        assertThat(updated.version()).isGreaterThan(original.version());
+        assertThat(updated.toItemDTOs()).extracting(CartItemResponseDTO::quantity).containsExactly(5, 1);
+        assertThat(updated.isActive()).isFalse();
+        assertThat(removed.toItemDTOs()).containsExactly(new CartItemResponseDTO(newItemId, newProductId, 1));
+        assertThat(removed.cleared().size()).isZero();
+    }
+}
@@ -0,0 +1,114 @@
+package com.mazadak.cart_service.client;
+
+import com.mazadak.cart_service.config.ProductFetchProperties;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.metrics.CartMetrics;
+import feign.Request;
+import feign.RetryableException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
+import org.springframework.http.ResponseEntity;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Product Batch Fetcher Tests")
+class ProductBatchFetcherTest {
+
+    @Mock
+    private ProductClient productClient;
+
+    @Mock
+    private CartMetrics cartMetrics;
+
+    @Test
+    @DisplayName("Should fetch large carts in chunks and keep the order of the ids")
+    void shouldFetchInChunksInOrder() {
+        // Arrange
+        ProductBatchFetcher fetcher = new ProductBatchFetcher(productClient,
+                new ProductFetchProperties(2, 2, 1, Duration.ZERO), cartMetrics);
+        List<UUID> productIds = IntStream.range(0, 5).mapToObj(i -> UUID.randomUUID()).toList();
+        when(productClient.getProductsByIds(eq(ProductClient.SUMMARY_FIELDS), anyList()))
+                .thenAnswer(invocation -> ResponseEntity.ok(summaries(invocation.getArgument(1))));
+
+        // Act
+        List<ProductSummaryDTO> products = fetcher.fetch(productIds);
+
+        // Assert
+        assertThat(products).extracting(ProductSummaryDTO::productId).containsExactlyElementsOf(productIds);
+        verify(productClient, times(3)).getProductsByIds(eq(ProductClient.SUMMARY_FIELDS), anyList());
+    }
+
+    @Test
+    @DisplayName("Should retry only the chunk that failed")
+    void shouldRetryFailedChunk() {
+        // Arrange
+        ProductBatchFetcher fetcher = new ProductBatchFetcher(productClient,
+                new ProductFetchProperties(1, 2, 2, Duration.ZERO), cartMetrics);
+        List<UUID> productIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+        Request request = Request.create(Request.HttpMethod.POST, "/products/batch", Map.of(), null,
+                StandardCharsets.UTF_8, null);
+        when(productClient.getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(productIds.get(0))))
+                .thenReturn(ResponseEntity.ok(summaries(List.of(productIds.get(0)))));
+        when(productClient.getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(productIds.get(1))))
+                .thenThrow(new RetryableException(-1, "Read timed out", Request.HttpMethod.POST, (Long) null, request))
+                .thenReturn(ResponseEntity.ok(summaries(List.of(productIds.get(1)))));
+
+        // Act
+        List<ProductSummaryDTO> products = fetcher.fetch(productIds);
+
+        // Assert
+        assertThat(products).extracting(ProductSummaryDTO::productId).containsExactlyElementsOf(productIds);
+        verify(productClient).getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(productIds.get(0)));
+        verify(productClient, times(2)).getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(productIds.get(1)));
+    }
+
+    @Test
+    @DisplayName("Should run chunk calls with the caller's MDC")
+    void shouldCarryMdcToChunks() {
+        // Arrange
+        ProductBatchFetcher fetcher = new ProductBatchFetcher(productClient,
+                new ProductFetchProperties(1, 2, 1, Duration.ZERO), cartMetrics);
+        List<String> requestIds = new CopyOnWriteArrayList<>();
+        when(productClient.getProductsByIds(eq(ProductClient.SUMMARY_FIELDS), anyList())).thenAnswer(invocation -> {
+            requestIds.add(MDC.get("requestId"));
+            return ResponseEntity.ok(summaries(invocation.getArgument(1)));
+        });
+        MDC.put("requestId", "request-1");
+
+        // Act
+        try {
+            fetcher.fetch(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+        } finally {
+            MDC.remove("requestId");
+            fetcher.close();
+        }
+
+        // Assert
+        assertThat(requestIds).containsExactly("request-1", "request-1", "request-1");
+    }
+
+    private static List<ProductSummaryDTO> summaries(List<UUID> productIds) {
+        return productIds.stream()
+                .map(id -> new ProductSummaryDTO(id, "Product", "Description", BigDecimal.TEN, null))
+                .toList();
+    }
+}
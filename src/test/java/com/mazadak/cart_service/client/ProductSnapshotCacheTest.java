@@ -0,0 +1,63 @@
+package com.mazadak.cart_service.client;
+
+import com.mazadak.cart_service.config.ProductCacheProperties;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.model.ProductSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("Product Snapshot Cache Tests")
+class ProductSnapshotCacheTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+
+    private final ProductSnapshotCache cache = new ProductSnapshotCache(mock(ProductClient.class),
+            new ProductCacheProperties(100, Duration.ofMinutes(10), Duration.ofHours(1)), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Should judge a stored snapshot by when it was taken, not by when the product changed")
+    void shouldMeasureAgeFromTakenAt() {
+        // Arrange
+        long now = System.currentTimeMillis();
+        ProductSnapshot oldProductJustTaken = snapshot(now - 24 * HOUR, now - 1_000);
+        ProductSnapshot takenLongAgo = snapshot(now - 3 * HOUR, now - 2 * HOUR);
+        ProductSnapshot neverTaken = snapshot(now, null);
+
+        // Act & Assert
+        assertThat(cache.isFresh(oldProductJustTaken)).isTrue();
+        assertThat(cache.isFresh(takenLongAgo)).isFalse();
+        assertThat(cache.isFresh(neverTaken)).isFalse();
+        assertThat(cache.isFresh(null)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should keep a cached snapshot unless the refreshed one is a newer version")
+    void shouldRefreshOnlyWithNewerVersion() {
+        // Arrange
+        UUID productId = UUID.randomUUID();
+        cache.putAll(List.of(new ProductSummaryDTO(productId, "Fetched", null, BigDecimal.ONE, null)));
+        long fetchedAt = cache.cachedSnapshotOf(productId).version();
+
+        // Act
+        cache.refresh(productId, snapshot(fetchedAt - HOUR, System.currentTimeMillis()));
+        String afterOlder = cache.cachedSnapshotOf(productId).title();
+        cache.refresh(productId, snapshot(fetchedAt + 1, System.currentTimeMillis()));
+
+        // Assert
+        assertThat(afterOlder).isEqualTo("Fetched");
+        assertThat(cache.cachedSnapshotOf(productId).title()).isEqualTo("Event");
+    }
+
+    private static ProductSnapshot snapshot(long version, Long takenAt) {
+        return new ProductSnapshot("Event", null, BigDecimal.TEN, null, version, takenAt);
+    }
+}
@@ -0,0 +1,79 @@
+package com.mazadak.cart_service.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ProductSummaryDeserializer Tests")
+class ProductSummaryDeserializerTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final UUID productId = UUID.randomUUID();
+
+    private List<ProductSummaryDTO> read(String json) throws Exception {
+        return objectMapper.readValue(json, new TypeReference<>() { });
+    }
+
+    @Test
+    @DisplayName("Should keep cart fields and pick primary image")
+    void shouldPickPrimaryImage() throws Exception {
+        // Arrange
+        String json = """
+                [{"productId":"%s","sellerId":"%s","title":"Test Product","description":"Description",
+                  "price":99.99,"attributes":{"color":["red","blue"]},
+                  "images":[{"imageId":1,"imageUri":"second.jpg","isPrimary":false,"position":1},
+                            {"imageId":2,"imageUri":"image.jpg","isPrimary":true,"position":2}]}]
+                """.formatted(productId, UUID.randomUUID());
+
+        // Act
+        List<ProductSummaryDTO> result = read(json);
+
+        // Assert
+        assertThat(result).containsExactly(new ProductSummaryDTO(
+                productId, "Test Product", "Description", new BigDecimal("99.99"), "image.jpg"));
+    }
+
+    @Test
+    @DisplayName("Should use first image when no primary image exists")
+    void shouldUseFirstImageWhenNoPrimaryExists() throws Exception {
+        // Arrange
+        String json = """
+                [{"productId":"%s","images":[{"imageUri":"fallback.jpg","isPrimary":false},
+                                             {"imageUri":"second.jpg","isPrimary":false}]}]
+                """.formatted(productId);
+
+        // Act
+        List<ProductSummaryDTO> result = read(json);
+
+        // Assert
+        assertThat(result.get(0).primaryImage()).isEqualTo("fallback.jpg");
+    }
+
+    @Test
+    @DisplayName("Should return null image when product has no images")
+    void shouldReturnNullImageWhenProductHasNoImages() throws Exception {
+        // Arrange
+        String json = """
+                [{"productId":"%s","title":"Test Product","price":null,"images":[]},
+                 {"productId":"%s","images":null}]
+                """.formatted(productId, productId);
+
+        // Act
+        List<ProductSummaryDTO> result = read(json);
+
+        // Assert
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).primaryImage()).isNull();
+        assertThat(result.get(0).price()).isNull();
+        assertThat(result.get(1).primaryImage()).isNull();
+    }
+}
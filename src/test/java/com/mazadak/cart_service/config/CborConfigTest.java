@@ -0,0 +1,63 @@
+package com.mazadak.cart_service.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
+import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.DetailedCartItemResponseDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("CBOR Config Tests")
+class CborConfigTest {
+
+    private ObjectMapper cborMapper;
+    private ObjectMapper jsonMapper;
+
+    @BeforeEach
+    void setUp() {
+        cborMapper = new CborConfig().cborHttpMessageConverter(new Jackson2ObjectMapperBuilder()).getObjectMapper();
+        jsonMapper = new Jackson2ObjectMapperBuilder().build();
+    }
+
+    @Test
+    @DisplayName("Should round-trip cart response and be smaller than JSON")
+    void shouldRoundTripCartResponse() throws Exception {
+        // Arrange
+        List<CartItemResponseDTO> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            items.add(new CartItemResponseDTO(UUID.randomUUID(), UUID.randomUUID(), i + 1));
+        }
+        CartResponseDTO cart = new CartResponseDTO(UUID.randomUUID(), UUID.randomUUID(), items);
+
+        // Act
+        byte[] cbor = cborMapper.writeValueAsBytes(cart);
+        byte[] json = jsonMapper.writeValueAsBytes(cart);
+
+        // Assert
+        assertThat(cborMapper.readValue(cbor, CartResponseDTO.class)).isEqualTo(cart);
+        assertThat(cbor.length).isLessThan(json.length);
+    }
+
+    @Test
+    @DisplayName("Should round-trip detailed cart item with exact price")
+    void shouldRoundTripDetailedCartItem() throws Exception {
+        // Arrange
+        DetailedCartItemResponseDTO item = new DetailedCartItemResponseDTO(
+                UUID.randomUUID(), 2, "Test Product", "Description", new BigDecimal("99.99"), "image.jpg", 5, true);
+
+        // Act
+        byte[] cbor = cborMapper.writeValueAsBytes(item);
+
+        // Assert
+        assertThat(cborMapper.readValue(cbor, DetailedCartItemResponseDTO.class)).isEqualTo(item);
+    }
+}
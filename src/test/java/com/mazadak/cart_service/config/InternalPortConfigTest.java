@@ -0,0 +1,111 @@
+package com.mazadak.cart_service.config;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Internal Port Config Tests")
+class InternalPortConfigTest {
+
+    private final OncePerRequestFilter filter = new InternalPortConfig().internalPortFilter(new InternalPortProperties(8081));
+
+    @Test
+    @DisplayName("Should serve internal endpoints on the internal port")
+    void shouldServeInternalEndpointsOnInternalPort() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts/internal/export", 8081), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    @DisplayName("Should answer 404 for internal endpoints on the public port")
+    void shouldHideInternalEndpointsOnPublicPort() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts/internal/product-demand", 8080), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should answer 404 for internal endpoints reached through matrix parameters on the public port")
+    void shouldHideInternalEndpointsWithMatrixParameters() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts/internal;a=b/export", 8080), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should answer 404 for internal endpoints reached through a percent-encoded path on the public port")
+    void shouldHideInternalEndpointsWithEncodedPath() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts/%69nternal/product-demand", 8080), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should answer 404 for internal endpoints while no internal port is set")
+    void shouldHideInternalEndpointsWithoutInternalPort() throws Exception {
+        // Arrange
+        OncePerRequestFilter unset = new InternalPortConfig().internalPortFilter(new InternalPortProperties(-1));
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        unset.doFilter(request("/carts/internal/export", -1), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(404);
+    }
+
+    @Test
+    @DisplayName("Should leave cart endpoints alone on the public port")
+    void shouldPassPublicEndpoints() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request("/carts/items", 8080), new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    private static MockHttpServletRequest request(String uri, int localPort) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.setLocalPort(localPort);
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mazadak.cart_service.config;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.SendResult;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Product Events Config Tests")
+class ProductEventsConfigTest {
+
+    @Test
+    @DisplayName("Should retry a failed batch and then publish its records to the dead-letter topic")
+    @SuppressWarnings("unchecked")
+    void shouldRetryThenPublishToDeadLetterTopic() {
+        // Arrange
+        KafkaTemplate<Object, Object> kafkaTemplate = mock(KafkaTemplate.class);
+        when(kafkaTemplate.send(any(ProducerRecord.class)))
+                .thenReturn(CompletableFuture.completedFuture(mock(SendResult.class)));
+        CommonErrorHandler handler = new ProductEventsConfig().productEventsErrorHandler(kafkaTemplate,
+                new ProductEventsProperties(true, "product-deleted", "auction-closed", "product-updated",
+                        "cart-service", 100, 2, Duration.ZERO, ".DLT"));
+        ConsumerRecord<String, String> first = new ConsumerRecord<>("product-deleted", 3, 10, null, "{\"productId\":\"a\"}");
+        ConsumerRecord<String, String> second = new ConsumerRecord<>("auction-closed", 0, 7, null, "{\"productId\":\"b\"}");
+        ConsumerRecords<String, String> records = new ConsumerRecords<>(Map.of(
+                new TopicPartition("product-deleted", 3), List.of(first),
+                new TopicPartition("auction-closed", 0), List.of(second)));
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.isRunning()).thenReturn(true);
+        AtomicInteger retries = new AtomicInteger();
+
+        // Act
+        handler.handleBatch(new IllegalStateException("database down"), (ConsumerRecords) records,
+                mock(Consumer.class), container, () -> {
+                    retries.incrementAndGet();
+                    throw new IllegalStateException("database down");
+                });
+
+        // Assert
+        ArgumentCaptor<ProducerRecord<Object, Object>> published = ArgumentCaptor.forClass(ProducerRecord.class);
+        verify(kafkaTemplate, times(2)).send(published.capture());
+        assertThat(retries).hasValue(2);
+        assertThat(published.getAllValues()).extracting(ProducerRecord::topic)
+                .containsExactlyInAnyOrder("product-deleted.DLT", "auction-closed.DLT");
+        assertThat(published.getAllValues()).extracting(ProducerRecord::partition).containsOnlyNulls();
+    }
+}
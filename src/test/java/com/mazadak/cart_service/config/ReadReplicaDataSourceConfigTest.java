@@ -0,0 +1,57 @@
+package com.mazadak.cart_service.config;
+
+import com.mazadak.cart_service.datasource.ReadWriteRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Read Replica DataSource Config Tests")
+class ReadReplicaDataSourceConfigTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withUserConfiguration(ReadReplicaDataSourceConfig.class, Properties.class)
+            .withBean(MeterRegistry.class, SimpleMeterRegistry::new)
+            .withPropertyValues(
+                    "cart.read-replicas.enabled=true",
+                    "spring.datasource.url=jdbc:h2:mem:primary",
+                    "cart.read-replicas.nodes[0].url=jdbc:h2:mem:replica-0",
+                    "cart.read-replicas.nodes[1].url=jdbc:h2:mem:replica-1");
+
+    @Test
+    @DisplayName("Should close the primary and replica pools when the context closes")
+    void shouldClosePoolsWithContext() {
+        // Arrange
+        List<HikariDataSource> pools = new ArrayList<>();
+
+        // Act
+        contextRunner.run(context -> {
+            DataSource dataSource = context.getBean(DataSource.class);
+            try (Connection connection = dataSource.getConnection()) {
+                connection.createStatement().execute("select 1");
+            }
+            ReadWriteRoutingDataSource routing = (ReadWriteRoutingDataSource)
+                    ((LazyConnectionDataSourceProxy) dataSource).getTargetDataSource();
+            routing.getResolvedDataSources().values().forEach(pool -> pools.add((HikariDataSource) pool));
+            assertThat(pools).hasSize(3).noneMatch(HikariDataSource::isClosed);
+        });
+
+        // Assert
+        assertThat(pools).hasSize(3).allMatch(HikariDataSource::isClosed);
+    }
+
+    @EnableConfigurationProperties({DataSourceProperties.class, ReadReplicaProperties.class})
+    static class Properties { }
+}
@@ -0,0 +1,186 @@
+package com.mazadak.cart_service.controller;
+
+import com.mazadak.cart_service.client.InventoryClient;
+import com.mazadak.cart_service.client.ProductClient;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
+import com.mazadak.cart_service.model.Cart;
+import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.enums.Status;
+import com.mazadak.cart_service.repository.CartRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Fails when an endpoint issues more SQL statements than its budget, e.g. after an N+1 regression.
+ * Statements are counted through Hibernate statistics against an in-memory H2 database.
+ * Mutations are allowed one statement more than the item write itself, for the cart totals update.
+ */
+// Config server import is resolved before profiles, so it is switched off here
+@SpringBootTest(properties = {"spring.cloud.config.enabled=false", "cart.internal.port=" + CartControllerQueryBudgetTest.INTERNAL_PORT})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("CartController SQL Statement Budget Tests")
+class CartControllerQueryBudgetTest {
+
+    static final int INTERNAL_PORT = 18081;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private CartRepository cartRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @MockitoBean
+    private ProductClient productClient;
+
+    @MockitoBean
+    private InventoryClient inventoryClient;
+
+    private Statistics statistics;
+    private UUID userId;
+    private UUID productId;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        userId = UUID.randomUUID();
+        productId = UUID.randomUUID();
+
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setStatus(Status.ACTIVE);
+        for (UUID id : List.of(productId, UUID.randomUUID(), UUID.randomUUID())) {
+            CartItem item = new CartItem();
+            item.setCart(cart);
+            item.setProductId(id);
+            item.setQuantity(2);
+            cart.getCartItems().add(item);
+        }
+        cartRepository.save(cart);
+    }
+
+    private long statementsFor(MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request.header("X-User-Id", userId.toString()))
+                .andExpect(status().is2xxSuccessful());
+        return statistics.getPrepareStatementCount();
+    }
+
+    @Test
+    @DisplayName("GET /carts should stay within 1 statement")
+    void getCart() throws Exception {
+        assertThat(statementsFor(get("/carts"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /carts/items should stay within 1 statement")
+    void getCartItems() throws Exception {
+        assertThat(statementsFor(get("/carts/items"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /carts/items/detailed should stay within 1 statement")
+    void getDetailedCartItems() throws Exception {
+        when(productClient.getProductsByIds(anyString(), anyList())).thenAnswer(invocation -> {
+            List<UUID> ids = invocation.getArgument(1);
+            return ResponseEntity.ok(ids.stream()
+                    .map(id -> new ProductSummaryDTO(id, "Product", "Description", BigDecimal.TEN, null))
+                    .toList());
+        });
+
+        assertThat(statementsFor(get("/carts/items/detailed"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /carts/summary should stay within 1 statement")
+    void getCartSummary() throws Exception {
+        assertThat(statementsFor(get("/carts/summary"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("GET /carts/is-active should stay within 1 statement")
+    void isActive() throws Exception {
+        assertThat(statementsFor(get("/carts/is-active"))).isLessThanOrEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("POST /carts/items for a new product should stay within 3 statements")
+    void addNewItem() throws Exception {
+        String body = "{\"productId\":\"%s\",\"quantity\":1}".formatted(UUID.randomUUID());
+
+        assertThat(statementsFor(post("/carts/items").contentType(MediaType.APPLICATION_JSON).content(body)))
+                .isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("POST /carts/items for an existing product should stay within 3 statements")
+    void addExistingItem() throws Exception {
+        String body = "{\"productId\":\"%s\",\"quantity\":1}".formatted(productId);
+
+        assertThat(statementsFor(post("/carts/items").contentType(MediaType.APPLICATION_JSON).content(body)))
+                .isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("PUT /carts/items/{productId} should stay within 3 statements")
+    void updateItemQuantity() throws Exception {
+        assertThat(statementsFor(put("/carts/items/" + productId)
+                .contentType(MediaType.APPLICATION_JSON).content("{\"quantity\":5}")))
+                .isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("PATCH /carts/items/reduce/{productId} should stay within 3 statements")
+    void reduceItemQuantity() throws Exception {
+        assertThat(statementsFor(patch("/carts/items/reduce/" + productId))).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("DELETE /carts/items/{productId} should stay within 3 statements")
+    void removeItem() throws Exception {
+        assertThat(statementsFor(delete("/carts/items/" + productId))).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("POST /carts/clear should stay within 3 statements")
+    void clearCart() throws Exception {
+        assertThat(statementsFor(post("/carts/clear"))).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("GET /carts/internal/export should stay within 1 statement whatever the number of carts")
+    void exportCarts() throws Exception {
+        // Internal endpoints are only served on the internal port
+        assertThat(statementsFor(get("/carts/internal/export").with(request -> {
+            request.setLocalPort(INTERNAL_PORT);
+            return request;
+        }))).isLessThanOrEqualTo(1);
+    }
+}
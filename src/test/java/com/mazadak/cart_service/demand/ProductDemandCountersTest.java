@@ -0,0 +1,126 @@
+package com.mazadak.cart_service.demand;
+
+import com.mazadak.cart_service.config.ProductDemandProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Product Demand Counters Tests")
+class ProductDemandCountersTest {
+
+    private final ProductDemandStore store = mock(ProductDemandStore.class);
+
+    private final UUID productId = UUID.randomUUID();
+    private final UUID otherProductId = UUID.randomUUID();
+
+    private ProductDemandCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new ProductDemandCounters(
+                new ProductDemandProperties(true, 16, Duration.ofSeconds(1), Duration.ofHours(1)),
+                store, new SimpleMeterRegistry());
+        when(store.add(anyInt(), anyMap())).thenReturn(Map.of());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should add the net change of each product to one stripe per flush")
+    void shouldFlushNetChanges() {
+        // Arrange
+        counters.added(productId);
+        counters.added(productId);
+        counters.removed(List.of(productId, otherProductId));
+
+        // Act
+        counters.flush();
+        counters.flush();
+
+        // Assert
+        verify(store).add(anyInt(), eq(Map.of(productId, 1L, otherProductId, -1L)));
+        verify(store, never()).insert(anyInt(), anyMap());
+    }
+
+    @Test
+    @DisplayName("Should keep the changes of a failed flush for the next one")
+    void shouldRestoreChangesOnFailure() {
+        // Arrange
+        counters.added(productId);
+        when(store.add(anyInt(), anyMap())).thenThrow(new IllegalStateException("database down"))
+                .thenReturn(Map.of());
+        assertThatThrownBy(counters::flush).isInstanceOf(IllegalStateException.class);
+        counters.added(productId);
+
+        // Act
+        counters.flush();
+
+        // Assert
+        verify(store).add(anyInt(), eq(Map.of(productId, 2L)));
+    }
+
+    @Test
+    @DisplayName("Should create missing rows, and add to them on the next flush if another writer created them first")
+    void shouldRetryDuplicateRowsAsUpdates() {
+        // Arrange
+        counters.added(productId);
+        counters.added(otherProductId);
+        when(store.add(anyInt(), anyMap())).thenReturn(Map.of(productId, 1L)).thenReturn(Map.of());
+        doThrow(new DuplicateKeyException("product_demand_pkey")).when(store).insert(anyInt(), eq(Map.of(productId, 1L)));
+
+        // Act
+        counters.flush();
+        counters.flush();
+
+        // Assert
+        verify(store).insert(anyInt(), eq(Map.of(productId, 1L)));
+        verify(store).add(anyInt(), eq(Map.of(productId, 1L)));
+    }
+
+    @Test
+    @DisplayName("Should only count changes of committed transactions")
+    void shouldCountAfterCommit() {
+        // Arrange
+        TransactionSynchronizationManager.initSynchronization();
+        counters.added(productId);
+        List<TransactionSynchronization> committed = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        TransactionSynchronizationManager.initSynchronization();
+        counters.added(otherProductId);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Act
+        counters.flush();
+        committed.forEach(TransactionSynchronization::afterCommit);
+        counters.flush();
+
+        // Assert
+        verify(store).add(anyInt(), eq(Map.of(productId, 1L)));
+    }
+}
@@ -0,0 +1,107 @@
+package com.mazadak.cart_service.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.config.ProductEventsProperties;
+import com.mazadak.cart_service.model.ProductSnapshot;
+import com.mazadak.cart_service.snapshot.ProductSnapshotWriter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("Product Events Listener Tests")
+class ProductEventsListenerTest {
+
+    @Mock
+    private CartItemPurger purger;
+
+    @Mock
+    private ProductSnapshotWriter snapshotWriter;
+
+    @Mock
+    private ProductSnapshotCache productSnapshots;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private ProductEventsListener listener;
+
+    @BeforeEach
+    void setUp() {
+        listener = new ProductEventsListener(purger, snapshotWriter, productSnapshots,
+                new ObjectMapper().findAndRegisterModules(),
+                new ProductEventsProperties(true, "product-deleted", "auction-closed", "product-updated",
+                        "cart-service", 100, 5, Duration.ofSeconds(1), ".DLT"),
+                meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should remove the distinct products of a batch together and skip unreadable events")
+    void shouldPurgeBatchOnce() {
+        // Arrange
+        UUID deleted = UUID.randomUUID();
+        UUID auctioned = UUID.randomUUID();
+        when(purger.purge(Set.of(deleted, auctioned), 100)).thenReturn(3);
+
+        // Act
+        listener.onEvents(List.of(
+                record("product-deleted", "{\"productId\":\"" + deleted + "\",\"sellerId\":\"s-1\"}"),
+                record("auction-closed", "{\"productId\":\"" + auctioned + "\"}"),
+                record("auction-closed", "{\"productId\":\"" + auctioned + "\"}"),
+                record("product-deleted", "not json")));
+
+        // Assert
+        verify(purger).purge(eq(Set.of(deleted, auctioned)), eq(100));
+        assertThat(meterRegistry.get("cart.product.events.items.removed").counter().count()).isEqualTo(3);
+        assertThat(meterRegistry.get("cart.product.events.invalid").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("cart.product.events").tag("topic", "auction-closed").counter().count())
+                .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should write only the latest state of each updated product")
+    void shouldWriteLatestSnapshots() {
+        // Arrange
+        UUID productId = UUID.randomUUID();
+        long before = System.currentTimeMillis();
+
+        // Act
+        listener.onUpdates(List.of(
+                record("product-updated", "{\"productId\":\"" + productId
+                        + "\",\"title\":\"New\",\"price\":5.00,\"updatedAt\":\"2026-01-01T00:00:02Z\"}"),
+                record("product-updated", "{\"productId\":\"" + productId
+                        + "\",\"title\":\"Old\",\"price\":4.00,\"updatedAt\":\"2026-01-01T00:00:01Z\"}")));
+
+        // Assert
+        ArgumentCaptor<ProductSnapshot> refreshed = ArgumentCaptor.forClass(ProductSnapshot.class);
+        verify(productSnapshots).refresh(eq(productId), refreshed.capture());
+        ProductSnapshot latest = refreshed.getValue();
+        assertThat(latest.title()).isEqualTo("New");
+        assertThat(latest.price()).isEqualByComparingTo("5.00");
+        assertThat(latest.version()).isEqualTo(Instant.parse("2026-01-01T00:00:02Z").toEpochMilli());
+        assertThat(latest.takenAt()).isBetween(before, System.currentTimeMillis());
+        verify(snapshotWriter).writeEverywhere(Map.of(productId, latest), 100);
+    }
+
+    private static ConsumerRecord<String, String> record(String topic, String value) {
+        return new ConsumerRecord<>(topic, 0, 0, null, value);
+    }
+}
@@ -0,0 +1,172 @@
+package com.mazadak.cart_service.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.model.enums.Status;
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Cart Exporter Tests")
+class CartExporterTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<ShardDataSources> shards = mock(ObjectProvider.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final UUID firstCart = new UUID(0, 1);
+    private final UUID secondCart = new UUID(0, 2);
+
+    private CartExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        exporter = new CartExporter(cartRepository, objectMapper, shards, transactionManager);
+    }
+
+    @Test
+    @DisplayName("Should write one line per cart with its items, carts without items included")
+    void shouldWriteOneLinePerCart() throws Exception {
+        // Arrange
+        UUID productId = UUID.randomUUID();
+        when(cartRepository.streamForExport(new UUID(0, 0))).thenReturn(Stream.of(
+                item(firstCart, productId, 2, new BigDecimal("9.50")),
+                item(firstCart, UUID.randomUUID(), 1, null),
+                new CartExportRow(secondCart, UUID.randomUUID(), Status.INACTIVE, true, NOW, NOW, null, null, null, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long carts = exporter.export(null, null, out, false);
+
+        // Assert
+        List<JsonNode> lines = lines(out.toString(StandardCharsets.UTF_8));
+        assertThat(carts).isEqualTo(2);
+        assertThat(lines).hasSize(2);
+        assertThat(lines.get(0).get("cartId").asText()).isEqualTo(firstCart.toString());
+        assertThat(lines.get(0).get("items")).hasSize(2);
+        assertThat(lines.get(0).get("items").get(0).get("productId").asText()).isEqualTo(productId.toString());
+        assertThat(lines.get(0).get("items").get(0).get("unitPrice").decimalValue()).isEqualByComparingTo("9.50");
+        assertThat(lines.get(0).get("items").get(1).has("unitPrice")).isFalse();
+        assertThat(lines.get(1).get("status").asText()).isEqualTo("INACTIVE");
+        assertThat(lines.get(1).get("guest").asBoolean()).isTrue();
+        assertThat(lines.get(1).get("items")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should resume after the given cart and compress the output")
+    void shouldResumeAndCompress() throws Exception {
+        // Arrange
+        when(cartRepository.streamForExport(firstCart)).thenReturn(Stream.of(item(secondCart, UUID.randomUUID(), 3, null)));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long carts = exporter.export(null, firstCart, out, true);
+
+        // Assert
+        String body;
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        assertThat(carts).isEqualTo(1);
+        assertThat(lines(body)).singleElement()
+                .satisfies(line -> assertThat(line.get("cartId").asText()).isEqualTo(secondCart.toString()));
+    }
+
+    @Test
+    @DisplayName("Should export the requested shard")
+    void shouldExportRequestedShard() {
+        // Arrange
+        when(shards.getIfAvailable()).thenReturn(shards("shard-0", "shard-1"));
+        AtomicReference<String> shard = new AtomicReference<>();
+        when(cartRepository.streamForExport(any())).thenAnswer(invocation -> {
+            shard.set(ShardContext.current());
+            return Stream.empty();
+        });
+
+        // Act
+        long carts = exporter.export("shard-1", null, new ByteArrayOutputStream(), false);
+
+        // Assert
+        assertThat(carts).isZero();
+        assertThat(shard.get()).isEqualTo("shard-1");
+    }
+
+    @Test
+    @DisplayName("Should reject an unknown shard before reading or writing anything")
+    void shouldRejectUnknownShard() {
+        // Arrange
+        when(shards.getIfAvailable()).thenReturn(shards("shard-0"));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act & Assert
+        assertThatThrownBy(() -> exporter.checkShard("shard-9")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> exporter.export("shard-9", null, out, true)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(out.size()).isZero();
+        verify(cartRepository, never()).streamForExport(any());
+    }
+
+    @Test
+    @DisplayName("Should reject a shard when sharding is not enabled")
+    void shouldRejectShardWithoutSharding() {
+        // Act & Assert
+        assertThatThrownBy(() -> exporter.checkShard("shard-0")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static CartExportRow item(UUID cartId, UUID productId, int quantity, BigDecimal unitPrice) {
+        return new CartExportRow(cartId, UUID.randomUUID(), Status.ACTIVE, false, NOW, NOW,
+                UUID.randomUUID(), productId, quantity, unitPrice);
+    }
+
+    private static ShardDataSources shards(String... names) {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (String name : names) {
+            pools.put(name, mock(DataSource.class));
+        }
+        return new ShardDataSources(pools);
+    }
+
+    private List<JsonNode> lines(String body) throws Exception {
+        List<JsonNode> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
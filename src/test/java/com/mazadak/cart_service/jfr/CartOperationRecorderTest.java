@@ -0,0 +1,137 @@
+package com.mazadak.cart_service.jfr;
+
+import com.mazadak.cart_service.client.ProductBatchFetcher;
+import com.mazadak.cart_service.client.ProductClient;
+import com.mazadak.cart_service.config.ProductFetchProperties;
+import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
+import com.mazadak.cart_service.metrics.CartMetrics;
+import com.mazadak.cart_service.service.CartService;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Cart Operation Recorder Tests")
+class CartOperationRecorderTest {
+
+    private final CartOperationRecorder recorder = new CartOperationRecorder();
+
+    @Test
+    @DisplayName("Should record one event per operation with the product-catalog time spent in it")
+    void shouldRecordOperation() throws Exception {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        ProductClient productClient = proxy(mock(ProductClient.class));
+        when(productClient.getProductsByIds(any(), anyList())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return null;
+        });
+        CartService service = mock(CartService.class);
+        when(service.getCartItems(userId)).thenAnswer(invocation -> {
+            productClient.getProductsByIds(ProductClient.SUMMARY_FIELDS, List.of(UUID.randomUUID()));
+            return List.of(new CartItemResponseDTO(UUID.randomUUID(), UUID.randomUUID(), 1),
+                    new CartItemResponseDTO(UUID.randomUUID(), UUID.randomUUID(), 2));
+        });
+        CartService proxied = proxy(service);
+
+        // Act
+        List<RecordedEvent> events = record(() -> proxied.getCartItems(userId));
+
+        // Assert
+        assertThat(events).hasSize(1);
+        RecordedEvent event = events.get(0);
+        assertThat(event.getString("operation")).isEqualTo("getCartItems");
+        assertThat(event.getInt("userIdHash")).isEqualTo(userId.hashCode());
+        assertThat(event.getInt("itemCount")).isEqualTo(2);
+        assertThat(event.getDuration("productClientTime")).isGreaterThanOrEqualTo(Duration.ofMillis(20));
+        assertThat(event.getBoolean("failed")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should count the product-catalog time of a chunked fetch once, though its calls run on other threads")
+    void shouldRecordChunkedFetch() throws Exception {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        ProductClient productClient = proxy(mock(ProductClient.class));
+        when(productClient.getProductsByIds(any(), anyList())).thenAnswer(invocation -> {
+            Thread.sleep(20);
+            return ResponseEntity.ok(List.of());
+        });
+        ProductBatchFetcher fetcher = proxy(new ProductBatchFetcher(productClient,
+                new ProductFetchProperties(1, 1, 1, Duration.ZERO), mock(CartMetrics.class)));
+        CartService service = mock(CartService.class);
+        when(service.getDetailedCartItems(userId)).thenAnswer(invocation -> {
+            fetcher.fetch(List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+            fetcher.fetch(List.of(UUID.randomUUID()));
+            return List.of();
+        });
+        CartService proxied = proxy(service);
+
+        // Act
+        List<RecordedEvent> events = record(() -> proxied.getDetailedCartItems(userId));
+
+        // Assert
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getDuration("productClientTime")).isGreaterThanOrEqualTo(Duration.ofMillis(80));
+            assertThat(event.getDuration("productClientTime")).isLessThanOrEqualTo(event.getDuration());
+        });
+    }
+
+    @Test
+    @DisplayName("Should mark failed operations")
+    void shouldRecordFailure() throws Exception {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        CartService service = mock(CartService.class);
+        when(service.getDetailedCartItems(userId)).thenThrow(new IllegalStateException("catalog down"));
+        CartService proxied = proxy(service);
+
+        // Act
+        List<RecordedEvent> events = record(() ->
+                assertThatThrownBy(() -> proxied.getDetailedCartItems(userId)).isInstanceOf(IllegalStateException.class));
+
+        // Assert
+        assertThat(events).singleElement().satisfies(event -> {
+            assertThat(event.getString("operation")).isEqualTo("getDetailedCartItems");
+            assertThat(event.getBoolean("failed")).isTrue();
+        });
+    }
+
+    private List<RecordedEvent> record(Runnable operation) throws Exception {
+        Path file = Files.createTempFile("cart-operation-", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CartOperationEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            operation.run();
+            recording.stop();
+            recording.dump(file);
+            return RecordingFile.readAllEvents(file).stream()
+                    .filter(event -> event.getEventType().getName().equals("com.mazadak.cart.Operation"))
+                    .toList();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private <T> T proxy(T target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(recorder);
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,84 @@
+package com.mazadak.cart_service.jfr;
+
+import com.mazadak.cart_service.config.JfrRecordingProperties;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("JFR Recording Endpoint Tests")
+class JfrRecordingEndpointTest {
+
+    private final JfrRecordingEndpoint endpoint = new JfrRecordingEndpoint(
+            new JfrRecordingProperties("profile", Duration.ofMinutes(1), DataSize.ofMegabytes(10)));
+
+    @AfterEach
+    void tearDown() {
+        endpoint.stop();
+    }
+
+    @Test
+    @DisplayName("Should turn off the events that copy the environment, system properties and JVM arguments")
+    void shouldRedactSettings() throws Exception {
+        // Act
+        Map<String, String> settings = JfrRecordingEndpoint.settings("profile");
+
+        // Assert
+        assertThat(settings)
+                .containsEntry("jdk.InitialEnvironmentVariable#enabled", "false")
+                .containsEntry("jdk.InitialSystemProperty#enabled", "false")
+                .containsEntry("jdk.JVMInformation#enabled", "false")
+                .containsEntry("jdk.GarbageCollection#enabled", "true");
+    }
+
+    @Test
+    @DisplayName("Should start, stop and download a recording without credentials in it")
+    void shouldRecordAndDownload() throws Exception {
+        // Act
+        Map<String, Object> started = endpoint.start();
+        Map<String, Object> stopped = endpoint.stop();
+        WebEndpointResponse<Resource> download = endpoint.download();
+
+        // Assert
+        assertThat(started).containsEntry("state", "RUNNING");
+        assertThat(stopped).containsEntry("state", "STOPPED");
+        assertThat(download.getStatus()).isEqualTo(WebEndpointResponse.STATUS_OK);
+        Path file = Files.createTempFile("downloaded-", ".jfr");
+        try (InputStream in = download.getBody().getInputStream()) {
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        List<String> eventTypes = RecordingFile.readAllEvents(file).stream()
+                .map(RecordedEvent::getEventType)
+                .map(type -> type.getName())
+                .distinct()
+                .toList();
+        Files.delete(file);
+        assertThat(eventTypes).isNotEmpty()
+                .doesNotContain("jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty", "jdk.JVMInformation");
+        assertThat(download.getBody().getFile()).doesNotExist();
+    }
+
+    @Test
+    @DisplayName("Should answer 404 when nothing was recorded")
+    void shouldReturnNotFoundWithoutRecording() throws Exception {
+        // Act
+        WebEndpointResponse<Resource> download = endpoint.download();
+
+        // Assert
+        assertThat(download.getStatus()).isEqualTo(WebEndpointResponse.STATUS_NOT_FOUND);
+    }
+}
@@ -0,0 +1,195 @@
+package com.mazadak.cart_service.lock;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.exception.CartBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Cart Write Lock Tests")
+class CartWriteLockAspectTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Should run writes to the same cart one at a time")
+    void shouldSerializeSameCart() throws Exception {
+        // Arrange
+        CartWrites target = new CartWrites();
+        CartWrites writes = proxy(target, Duration.ofSeconds(5));
+        UUID userId = UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = IntStream.range(0, 8)
+                .<Future<?>>mapToObj(i -> executor.submit(() -> writes.write(userId, 5)))
+                .toList();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(target.maxConcurrent.get()).isEqualTo(1);
+        assertThat(meterRegistry.get("cart.write.lock.contended").counter().count()).isPositive();
+    }
+
+    @Test
+    @DisplayName("Should give up with a 409 once the timeout passes")
+    void shouldTimeOutWithConflict() throws Exception {
+        // Arrange
+        CartWrites writes = proxy(new CartWrites(), Duration.ofMillis(50));
+        UUID userId = UUID.randomUUID();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> holder = executor.submit(() -> writes.hold(userId, holding, release));
+        holding.await(5, TimeUnit.SECONDS);
+
+        // Act & Assert
+        assertThatThrownBy(() -> writes.write(userId, 0)).isInstanceOf(CartBusyException.class);
+        assertThat(AnnotatedElementUtils.findMergedAnnotation(CartBusyException.class, ResponseStatus.class).value())
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThat(meterRegistry.get("cart.write.lock.timeouts").counter().count()).isEqualTo(1);
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should let a locked write call another write of the same cart")
+    void shouldBeReentrant() {
+        // Arrange
+        CartWrites writes = proxy(new CartWrites(), Duration.ofMillis(50));
+        UUID userId = UUID.randomUUID();
+
+        // Act
+        int depth = writes.nested(userId, writes);
+
+        // Assert
+        assertThat(depth).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should hold the guest cart lock while merging it")
+    void shouldLockGuestCartDuringMerge() throws Exception {
+        // Arrange
+        CartWrites writes = proxy(new CartWrites(), Duration.ofMillis(50));
+        UUID userId = UUID.randomUUID();
+        UUID guestId = UUID.randomUUID();
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> merge = executor.submit(() -> writes.merge(userId, guestId, holding, release));
+        holding.await(5, TimeUnit.SECONDS);
+
+        // Act & Assert
+        assertThatThrownBy(() -> writes.write(guestId, 0)).isInstanceOf(CartBusyException.class);
+        assertThatThrownBy(() -> writes.write(userId, 0)).isInstanceOf(CartBusyException.class);
+        release.countDown();
+        merge.get(5, TimeUnit.SECONDS);
+        writes.write(guestId, 0);
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should not deadlock merges of two carts into each other")
+    void shouldNotDeadlockCrossedMerges() throws Exception {
+        // Arrange
+        CartWrites target = new CartWrites();
+        CartWrites writes = proxy(target, Duration.ofSeconds(5));
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = IntStream.range(0, 200)
+                .<Future<?>>mapToObj(i -> i % 2 == 0
+                        ? executor.submit(() -> writes.merge(first, second, 0))
+                        : executor.submit(() -> writes.merge(second, first, 0)))
+                .toList();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertThat(target.maxConcurrent.get()).isEqualTo(1);
+    }
+
+    private CartWrites proxy(CartWrites target, Duration timeout) {
+        CartWriteLockProperties properties = new CartWriteLockProperties(true, 16, timeout);
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new CartWriteLockAspect(new StripedCartLocks(properties, meterRegistry), properties));
+        return factory.getProxy();
+    }
+
+    static class CartWrites {
+
+        final AtomicInteger running = new AtomicInteger();
+
+        final AtomicInteger maxConcurrent = new AtomicInteger();
+
+        @CartWriteLock
+        public void write(UUID userId, long millis) {
+            int now = running.incrementAndGet();
+            maxConcurrent.accumulateAndGet(now, Math::max);
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+        }
+
+        @CartWriteLock
+        public void hold(UUID userId, CountDownLatch holding, CountDownLatch release) {
+            holding.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @CartWriteLock
+        public int nested(UUID userId, CartWrites self) {
+            return 1 + self.depth(userId);
+        }
+
+        @CartWriteLock
+        public int depth(UUID userId) {
+            return 1;
+        }
+
+        @CartWriteLock(carts = 2)
+        public void merge(UUID userId, UUID guestId, CountDownLatch holding, CountDownLatch release) {
+            hold(userId, holding, release);
+        }
+
+        @CartWriteLock(carts = 2)
+        public void merge(UUID userId, UUID guestId, long millis) {
+            write(userId, millis);
+        }
+    }
+}
@@ -1,19 +1,28 @@
 package com.mazadak.cart_service.service.Impl;
 
-import com.mazadak.cart_service.client.ProductClient;
-import com.mazadak.cart_service.dto.entity.ProductImageDTO;
+import com.mazadak.cart_service.cache.CartCache;
+import com.mazadak.cart_service.client.ProductBatchFetcher;
+import com.mazadak.cart_service.config.CartCacheProperties;
+import com.mazadak.cart_service.client.ProductSnapshotCache;
+import com.mazadak.cart_service.client.StockAvailabilityCache;
+import com.mazadak.cart_service.demand.ProductDemandCounters;
 import com.mazadak.cart_service.dto.request.AddItemRequest;
 import com.mazadak.cart_service.dto.request.UpdateItemRequest;
 import com.mazadak.cart_service.dto.response.CartItemResponseDTO;
 import com.mazadak.cart_service.dto.response.CartResponseDTO;
+import com.mazadak.cart_service.dto.response.CartSummaryDTO;
 import com.mazadak.cart_service.dto.response.DetailedCartItemResponseDTO;
-import com.mazadak.cart_service.dto.response.ProductResponseDTO;
+import com.mazadak.cart_service.dto.response.ProductSummaryDTO;
 import com.mazadak.cart_service.mapper.CartMapper;
+import com.mazadak.cart_service.metrics.CartMetrics;
 import com.mazadak.cart_service.model.Cart;
 import com.mazadak.cart_service.model.CartItem;
+import com.mazadak.cart_service.model.ProductSnapshot;
 import com.mazadak.cart_service.model.enums.Status;
 import com.mazadak.cart_service.repository.CartItemRepository;
 import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.snapshot.ProductSnapshotWriter;
+import com.mazadak.cart_service.writebehind.WriteBehindBuffer;
 import com.mazadak.common.exception.domain.cart.CartIsNotActiveException;
 import com.mazadak.common.exception.shared.ResourceNotFoundException;
 import org.junit.jupiter.api.BeforeEach;
@@ -24,15 +33,17 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.http.ResponseEntity;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.data.domain.AuditorAware;
+import org.springframework.util.unit.DataSize;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -49,7 +60,31 @@ class CartServiceImplTest {
     private CartMapper cartMapper;
 
     @Mock
-    private ProductClient productClient;
+    private ProductBatchFetcher productBatches;
+
+    @Mock
+    private CartMetrics cartMetrics;
+
+    @Mock
+    private ProductSnapshotCache productSnapshots;
+
+    @Mock
+    private ProductSnapshotWriter productSnapshotWriter;
+
+    @Mock
+    private StockAvailabilityCache stockAvailability;
+
+    @Mock
+    private AuditorAware<String> auditorAware;
+
+    @Mock
+    private WriteBehindBuffer writeBehind;
+
+    @Mock
+    private CartCache cartCache;
+
+    @Mock
+    private ProductDemandCounters productDemand;
 
     @InjectMocks
     private CartServiceImpl cartService;
@@ -121,6 +156,37 @@ class CartServiceImplTest {
             assertThat(result).isNotNull();
             verify(cartRepository).save(any(Cart.class));
             verify(cartMapper).toCartResponseDTO(any(Cart.class));
+            verify(cartMetrics).cartCreated();
+        }
+
+        @Test
+        @DisplayName("Should not cache a cart created by a read until it exists")
+        void shouldNotCacheCartCreatedByRead() {
+            // Arrange
+            CartCache realCache = new CartCache(new CartCacheProperties(true, DataSize.ofMegabytes(1),
+                    Duration.ofMinutes(5), DataSize.ofMegabytes(1), false), new SimpleMeterRegistry());
+            when(cartCache.isEnabled()).thenReturn(true);
+            when(cartCache.get(eq(userId), any())).thenAnswer(invocation -> realCache.get(userId, invocation.getArgument(1)));
+            Cart phantom = new Cart();
+            phantom.setCartId(UUID.randomUUID());
+            phantom.setUserId(userId);
+            phantom.setStatus(Status.ACTIVE);
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.empty(), Optional.empty(), Optional.of(cart));
+            when(cartRepository.save(any(Cart.class))).thenReturn(phantom);
+
+            // Act
+            CartResponseDTO created = cartService.getCart(userId);
+            CartResponseDTO createdAgain = cartService.getCart(userId);
+            CartResponseDTO persisted = cartService.getCart(userId);
+            CartResponseDTO cached = cartService.getCart(userId);
+
+            // Assert
+            assertThat(created.cartId()).isEqualTo(phantom.getCartId());
+            assertThat(createdAgain.cartId()).isEqualTo(phantom.getCartId());
+            assertThat(persisted.cartId()).isEqualTo(cartId);
+            assertThat(cached.cartId()).isEqualTo(cartId);
+            verify(cartRepository, times(3)).findCartByUserId(userId);
+            verify(cartRepository, times(2)).save(any(Cart.class));
         }
     }
 
@@ -141,8 +207,6 @@ class CartServiceImplTest {
             // Arrange
             CartItemResponseDTO expectedResponse = new CartItemResponseDTO(itemId, productId, 3);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.empty());
             when(cartItemRepository.save(any(CartItem.class))).thenReturn(cartItem);
             when(cartMapper.toCartItemResponseDTO(any(CartItem.class))).thenReturn(expectedResponse);
 
@@ -153,6 +217,7 @@ class CartServiceImplTest {
             assertThat(result).isNotNull();
             assertThat(result.productId()).isEqualTo(productId);
             verify(cartItemRepository).save(any(CartItem.class));
+            verify(productDemand).added(productId);
             verify(cartMapper).toCartItemResponseDTO(any(CartItem.class));
         }
 
@@ -163,8 +228,7 @@ class CartServiceImplTest {
             cartItem.setQuantity(2);
             CartItemResponseDTO expectedResponse = new CartItemResponseDTO(itemId, productId, 5);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.of(cartItem));
+            cart.getCartItems().add(cartItem);
             when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
             when(cartMapper.toCartItemResponseDTO(cartItem)).thenReturn(expectedResponse);
 
@@ -177,6 +241,45 @@ class CartServiceImplTest {
             verify(cartItemRepository).save(cartItem);
         }
 
+        @Test
+        @DisplayName("Should buffer quantity of existing item in write-behind mode")
+        void shouldBufferQuantityInWriteBehindMode() {
+            // Arrange
+            cart.getCartItems().add(cartItem);
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+            when(writeBehind.isEnabled()).thenReturn(true);
+            when(writeBehind.bufferedQuantity(userId, itemId)).thenReturn(7);
+
+            // Act
+            CartItemResponseDTO result = cartService.addItem(userId, addItemRequest);
+
+            // Assert
+            assertThat(result.quantity()).isEqualTo(10);
+            verify(writeBehind).record(userId, itemId, 10);
+            verify(cartItemRepository, never()).save(any(CartItem.class));
+            assertThat(cartItem.getQuantity()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should price new item and update cart totals")
+        void shouldUpdateCartTotals() {
+            // Arrange
+            cartItem.setUnitPrice(new BigDecimal("10.00"));
+            cart.getCartItems().add(cartItem);
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+            when(productSnapshots.cachedSnapshotOf(any(UUID.class)))
+                    .thenReturn(new ProductSnapshot("Product", null, new BigDecimal("2.50"), null, 1L, 1L));
+
+            // Act
+            cartService.addItem(userId, new AddItemRequest(UUID.randomUUID(), 4));
+
+            // Assert
+            assertThat(cart.getItemCount()).isEqualTo(6);
+            assertThat(cart.getDistinctProducts()).isEqualTo(2);
+            assertThat(cart.getSubtotal()).isEqualByComparingTo("30.00");
+            assertThat(cart.getUnpricedItems()).isZero();
+        }
+
         @Test
         @DisplayName("Should throw exception when cart is inactive")
         void shouldThrowExceptionWhenCartIsInactive() {
@@ -190,6 +293,7 @@ class CartServiceImplTest {
                     .hasMessageContaining("Cart is not active");
 
             verify(cartItemRepository, never()).save(any(CartItem.class));
+            verify(cartMetrics).inactiveCartRejected();
         }
     }
 
@@ -210,8 +314,7 @@ class CartServiceImplTest {
             // Arrange
             CartItemResponseDTO expectedResponse = new CartItemResponseDTO(itemId, productId, 5);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.of(cartItem));
+            cart.getCartItems().add(cartItem);
             when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
             when(cartMapper.toCartItemResponseDTO(cartItem)).thenReturn(expectedResponse);
 
@@ -241,8 +344,6 @@ class CartServiceImplTest {
         void shouldThrowExceptionWhenItemNotFound() {
             // Arrange
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.empty());
 
             // Act & Assert
             assertThatThrownBy(() -> cartService.updateItemQuantity(userId, productId, updateRequest))
@@ -262,8 +363,7 @@ class CartServiceImplTest {
             cartItem.setQuantity(5);
             CartItemResponseDTO expectedResponse = new CartItemResponseDTO(itemId, productId, 3);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.of(cartItem));
+            cart.getCartItems().add(cartItem);
             when(cartItemRepository.save(cartItem)).thenReturn(cartItem);
             when(cartMapper.toCartItemResponseDTO(cartItem)).thenReturn(expectedResponse);
 
@@ -283,8 +383,7 @@ class CartServiceImplTest {
             // Arrange
             cartItem.setQuantity(2);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.of(cartItem));
+            cart.getCartItems().add(cartItem);
 
             // Act
             CartItemResponseDTO result = cartService.reduceItemQuantity(userId, productId, 2);
@@ -307,8 +406,7 @@ class CartServiceImplTest {
         void shouldRemoveItemFromCart() {
             // Arrange
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.of(cartItem));
+            cart.getCartItems().add(cartItem);
 
             // Act
             cartService.removeItem(userId, productId);
@@ -322,8 +420,6 @@ class CartServiceImplTest {
         void shouldThrowExceptionWhenItemNotFound() {
             // Arrange
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(cartItemRepository.findByCart_CartIdAndProductId(cartId, productId))
-                    .thenReturn(Optional.empty());
 
             // Act & Assert
             assertThatThrownBy(() -> cartService.removeItem(userId, productId))
@@ -340,6 +436,7 @@ class CartServiceImplTest {
         @DisplayName("Should clear all items from cart")
         void shouldClearAllItemsFromCart() {
             // Arrange
+            cart.getCartItems().add(cartItem);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
 
             // Act
@@ -347,6 +444,7 @@ class CartServiceImplTest {
 
             // Assert
             verify(cartItemRepository).deleteAllByCart_CartId(cartId);
+            verify(productDemand).removed(List.of(productId));
         }
 
         @Test
@@ -428,13 +526,6 @@ class CartServiceImplTest {
     @DisplayName("GetDetailedCartItems Tests")
     class GetDetailedCartItemsTests {
 
-        private UUID sellerId;
-
-        @BeforeEach
-        void setUp() {
-            sellerId = UUID.randomUUID();
-        }
-
         @Test
         @DisplayName("Should return empty list when cart has no items")
         void shouldReturnEmptyListWhenCartIsEmpty() {
@@ -446,7 +537,7 @@ class CartServiceImplTest {
 
             // Assert
             assertThat(result).isEmpty();
-            verify(productClient, never()).getProductsByIds(any());
+            verify(productBatches, never()).fetch(any());
         }
 
         @Test
@@ -455,19 +546,16 @@ class CartServiceImplTest {
             // Arrange
             cart.getCartItems().add(cartItem);
 
-            ProductImageDTO primaryImage = new ProductImageDTO(1L, "image.jpg", true, 1);
-            ProductResponseDTO productResponse = new ProductResponseDTO(
+            ProductSummaryDTO productSummary = new ProductSummaryDTO(
                     productId,
-                    sellerId,
                     "Test Product",
                     "Description",
                     BigDecimal.valueOf(99.99),
-                    List.of(primaryImage)
+                    "image.jpg"
             );
 
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(productClient.getProductsByIds(anyList()))
-                    .thenReturn(ResponseEntity.ok(List.of(productResponse)));
+            when(productBatches.fetch(List.of(productId))).thenReturn(List.of(productSummary));
 
             // Act
             List<DetailedCartItemResponseDTO> result = cartService.getDetailedCartItems(userId);
@@ -479,78 +567,70 @@ class CartServiceImplTest {
             assertThat(result.get(0).title()).isEqualTo("Test Product");
             assertThat(result.get(0).price()).isEqualTo(BigDecimal.valueOf(99.99));
             assertThat(result.get(0).primaryImage()).isEqualTo("image.jpg");
-            verify(productClient).getProductsByIds(anyList());
+            verify(productBatches).fetch(List.of(productId));
         }
 
         @Test
-        @DisplayName("Should throw exception when product not found")
-        void shouldThrowExceptionWhenProductNotFound() {
+        @DisplayName("Should render fresh stored snapshots without calling product-catalog")
+        void shouldServeFreshSnapshots() {
             // Arrange
+            ProductSnapshot snapshot = new ProductSnapshot("Stored Product", "Description", BigDecimal.TEN, "image.jpg",
+                    1L, System.currentTimeMillis());
+            cartItem.setSnapshot(snapshot);
             cart.getCartItems().add(cartItem);
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(productClient.getProductsByIds(anyList()))
-                    .thenReturn(ResponseEntity.ok(Collections.emptyList()));
+            when(productSnapshots.isFresh(snapshot)).thenReturn(true);
 
-            // Act & Assert
-            assertThatThrownBy(() -> cartService.getDetailedCartItems(userId))
-                    .isInstanceOf(RuntimeException.class)
-                    .hasMessageContaining("Product not found");
+            // Act
+            List<DetailedCartItemResponseDTO> result = cartService.getDetailedCartItems(userId);
+
+            // Assert
+            assertThat(result.get(0).title()).isEqualTo("Stored Product");
+            assertThat(result.get(0).price()).isEqualTo(BigDecimal.TEN);
+            verify(productBatches, never()).fetch(any());
+            verify(productSnapshotWriter, never()).write(any());
         }
 
         @Test
-        @DisplayName("Should use first image when no primary image exists")
-        void shouldUseFirstImageWhenNoPrimaryExists() {
+        @DisplayName("Should annotate items with stock availability")
+        void shouldAnnotateStockAvailability() {
             // Arrange
-            cart.getCartItems().add(cartItem);
-
-            ProductImageDTO nonPrimaryImage1 = new ProductImageDTO(1L, "fallback.jpg", false, 1);
-            ProductImageDTO nonPrimaryImage2 = new ProductImageDTO(2L, "second.jpg", false, 2);
-            ProductResponseDTO productResponse = new ProductResponseDTO(
-                    productId,
-                    sellerId,
-                    "Test Product",
-                    "Description",
-                    BigDecimal.valueOf(99.99),
-                    List.of(nonPrimaryImage1, nonPrimaryImage2)
-            );
+            UUID unknownProductId = UUID.randomUUID();
+            CartItem unknownItem = new CartItem();
+            unknownItem.setCart(cart);
+            unknownItem.setProductId(unknownProductId);
+            unknownItem.setQuantity(1);
+            cart.getCartItems().addAll(List.of(cartItem, unknownItem));
 
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(productClient.getProductsByIds(anyList()))
-                    .thenReturn(ResponseEntity.ok(List.of(productResponse)));
+            when(productBatches.fetch(anyList())).thenReturn(List.of(
+                    new ProductSummaryDTO(productId, "Test Product", "Description", BigDecimal.TEN, null),
+                    new ProductSummaryDTO(unknownProductId, "Other Product", "Description", BigDecimal.ONE, null)));
+            when(stockAvailability.availableQuantities(anyList())).thenReturn(Map.of(productId, 1));
 
             // Act
             List<DetailedCartItemResponseDTO> result = cartService.getDetailedCartItems(userId);
 
             // Assert
-            assertThat(result).hasSize(1);
-            assertThat(result.get(0).primaryImage()).isEqualTo("fallback.jpg");
+            assertThat(result.get(0).availableQuantity()).isEqualTo(1);
+            assertThat(result.get(0).inStock()).isFalse();
+            assertThat(result.get(1).availableQuantity()).isNull();
+            assertThat(result.get(1).inStock()).isNull();
+            verify(stockAvailability).availableQuantities(List.of(productId, unknownProductId));
         }
 
         @Test
-        @DisplayName("Should return null image when product has no images")
-        void shouldReturnNullImageWhenProductHasNoImages() {
+        @DisplayName("Should throw exception when product not found")
+        void shouldThrowExceptionWhenProductNotFound() {
             // Arrange
             cart.getCartItems().add(cartItem);
-
-            ProductResponseDTO productResponse = new ProductResponseDTO(
-                    productId,
-                    sellerId,
-                    "Test Product",
-                    "Description",
-                    BigDecimal.valueOf(99.99),
-                    Collections.emptyList()
-            );
-
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(productClient.getProductsByIds(anyList()))
-                    .thenReturn(ResponseEntity.ok(List.of(productResponse)));
+            when(productBatches.fetch(anyList())).thenReturn(Collections.emptyList());
 
-            // Act
-            List<DetailedCartItemResponseDTO> result = cartService.getDetailedCartItems(userId);
-
-            // Assert
-            assertThat(result).hasSize(1);
-            assertThat(result.get(0).primaryImage()).isNull();
+            // Act & Assert
+            assertThatThrownBy(() -> cartService.getDetailedCartItems(userId))
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessageContaining("Product not found");
         }
 
         @Test
@@ -566,30 +646,24 @@ class CartServiceImplTest {
             cart.getCartItems().add(cartItem);
             cart.getCartItems().add(cartItem2);
 
-            ProductImageDTO image1 = new ProductImageDTO(1L, "image1.jpg", true, 1);
-            ProductImageDTO image2 = new ProductImageDTO(2L, "image2.jpg", true, 1);
-
-            ProductResponseDTO product1 = new ProductResponseDTO(
+            ProductSummaryDTO product1 = new ProductSummaryDTO(
                     productId,
-                    sellerId,
                     "Product 1",
                     "Description 1",
                     BigDecimal.valueOf(99.99),
-                    List.of(image1)
+                    "image1.jpg"
             );
 
-            ProductResponseDTO product2 = new ProductResponseDTO(
+            ProductSummaryDTO product2 = new ProductSummaryDTO(
                     productId2,
-                    sellerId,
                     "Product 2",
                     "Description 2",
                     BigDecimal.valueOf(149.99),
-                    List.of(image2)
+                    "image2.jpg"
             );
 
             when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
-            when(productClient.getProductsByIds(anyList()))
-                    .thenReturn(ResponseEntity.ok(List.of(product1, product2)));
+            when(productBatches.fetch(anyList())).thenReturn(List.of(product1, product2));
 
             // Act
             List<DetailedCartItemResponseDTO> result = cartService.getDetailedCartItems(userId);
@@ -602,4 +676,115 @@ class CartServiceImplTest {
             assertThat(result.get(1).quantity()).isEqualTo(1);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("MergeGuestCart Tests")
+    class MergeGuestCartTests {
+
+        private final UUID guestId = UUID.randomUUID();
+
+        @Test
+        @DisplayName("Should merge guest cart into user cart in one statement")
+        void shouldMergeGuestCart() {
+            // Arrange
+            CartResponseDTO expectedResponse = new CartResponseDTO(cartId, userId, Collections.emptyList());
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+            when(auditorAware.getCurrentAuditor()).thenReturn(Optional.of("SYSTEM"));
+            when(cartItemRepository.mergeGuestCart(guestId, cartId, "SYSTEM")).thenReturn(1);
+            when(cartMapper.toCartResponseDTO(cart)).thenReturn(expectedResponse);
+
+            // Act
+            CartResponseDTO result = cartService.mergeGuestCart(userId, guestId);
+
+            // Assert
+            assertThat(result).isEqualTo(expectedResponse);
+            verify(cartItemRepository).mergeGuestCart(guestId, cartId, "SYSTEM");
+            verify(cartItemRepository, never()).save(any(CartItem.class));
+        }
+
+        @Test
+        @DisplayName("Should throw exception when guest cart does not exist")
+        void shouldThrowExceptionWhenGuestCartMissing() {
+            // Arrange
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+            when(auditorAware.getCurrentAuditor()).thenReturn(Optional.of("SYSTEM"));
+            when(cartItemRepository.mergeGuestCart(guestId, cartId, "SYSTEM")).thenReturn(0);
+
+            // Act & Assert
+            assertThatThrownBy(() -> cartService.mergeGuestCart(userId, guestId))
+                    .isInstanceOf(ResourceNotFoundException.class);
+        }
+
+        @Test
+        @DisplayName("Should not merge into inactive cart")
+        void shouldNotMergeIntoInactiveCart() {
+            // Arrange
+            cart.setStatus(Status.INACTIVE);
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+
+            // Act & Assert
+            assertThatThrownBy(() -> cartService.mergeGuestCart(userId, guestId))
+                    .isInstanceOf(CartIsNotActiveException.class);
+            verify(cartItemRepository, never()).mergeGuestCart(any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("GetCartSummary Tests")
+    class GetCartSummaryTests {
+
+        @Test
+        @DisplayName("Should return summary from cart totals")
+        void shouldReturnSummaryFromTotals() {
+            // Arrange
+            CartSummaryDTO expectedSummary = new CartSummaryDTO(cartId, 3, 2, new BigDecimal("42.00"), true);
+            when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
+            when(cartMapper.toCartSummaryDTO(cart)).thenReturn(expectedSummary);
+
+            // Act
+            CartSummaryDTO result = cartService.getCartSummary(userId);
+
+            // Assert
+            assertThat(result).isEqualTo(expectedSummary);
+            verify(cartRepository, never()).findCartByUserId(any());
+        }
+
+        @Test
+        @DisplayName("Should compute summary from items for a cart not backfilled yet")
+        void shouldComputeSummaryOfCartWithoutTotals() {
+            // Arrange
+            cart.setTotalsReady(false);
+            cartItem.setUnitPrice(new BigDecimal("10.00"));
+            cart.getCartItems().add(cartItem);
+            when(cartRepository.findByUserId(userId)).thenReturn(Optional.of(cart));
+            when(cartRepository.findCartByUserId(userId)).thenReturn(Optional.of(cart));
+            when(cartMapper.toCartSummaryDTO(cart)).thenAnswer(invocation -> new CartSummaryDTO(cartId,
+                    cart.getItemCount(), cart.getDistinctProducts(), cart.getSubtotal(), cart.getUnpricedItems() == 0));
+
+            // Act
+            CartSummaryDTO result = cartService.getCartSummary(userId);
+
+            // Assert
+            assertThat(result.itemCount()).isEqualTo(2);
+            assertThat(result.distinctProducts()).isEqualTo(1);
+            assertThat(result.subtotal()).isEqualByComparingTo("20.00");
+            assertThat(result.complete()).isTrue();
+            verify(cartRepository, never()).save(any(Cart.class));
+        }
+
+        @Test
+        @DisplayName("Should return empty summary without creating a cart")
+        void shouldReturnEmptySummaryWhenNoCart() {
+            // Arrange
+            when(cartRepository.findByUserId(userId)).thenReturn(Optional.empty());
+
+            // Act
+            CartSummaryDTO result = cartService.getCartSummary(userId);
+
+            // Assert
+            assertThat(result.itemCount()).isZero();
+            assertThat(result.subtotal()).isEqualByComparingTo(BigDecimal.ZERO);
+            verify(cartRepository, never()).save(any(Cart.class));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.mazadak.cart_service.shard;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.lock.StripedCartLocks;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Shard Rebalancer Tests")
+class ShardRebalancerTest {
+
+    private static final ShardRing RING = new ShardRing(List.of("shard-0", "shard-1"), 64);
+
+    private static final ShardRing PREVIOUS_RING = new ShardRing(List.of("shard-0"), 64);
+
+    private ShardDataSources shards;
+
+    private ShardRouter router;
+
+    private StripedCartLocks cartLocks;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (String shard : RING.shards()) {
+            DataSource pool = new DriverManagerDataSource(
+                    "jdbc:h2:mem:rebalancer-" + shard + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            JdbcTemplate jdbc = new JdbcTemplate(pool);
+            jdbc.execute("create table carts (cart_id uuid primary key, user_id uuid not null unique, status varchar(16))");
+            jdbc.execute("create table cart_item (cart_item_id uuid primary key, cart_id uuid not null, "
+                    + "product_id uuid not null, quantity int not null)");
+            pools.put(shard, pool);
+        }
+        shards = new ShardDataSources(pools);
+        router = new ShardRouter(RING, PREVIOUS_RING, shards);
+        cartLocks = new StripedCartLocks(new CartWriteLockProperties(true, 16, Duration.ofMillis(50)),
+                new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should move misplaced carts with their items and leave the others in place")
+    void shouldMoveMisplacedCarts() {
+        // Arrange
+        List<UUID> moving = new ArrayList<>();
+        List<UUID> staying = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            moving.add(insertCart("shard-0", userOn("shard-1"), 2));
+            staying.add(insertCart("shard-0", userOn("shard-0"), 1));
+        }
+        ShardRebalancer rebalancer = new ShardRebalancer(router, shards, cartLocks, 3);
+
+        // Act
+        rebalancer.rebalance();
+
+        // Assert
+        assertThat(rebalancer.movedCarts()).isEqualTo(7);
+        assertThat(userIds("shard-1")).containsExactlyInAnyOrderElementsOf(moving);
+        assertThat(userIds("shard-0")).containsExactlyInAnyOrderElementsOf(staying);
+        assertThat(count("shard-1", "cart_item")).isEqualTo(14);
+        assertThat(count("shard-0", "cart_item")).isEqualTo(7);
+        moving.forEach(userId -> assertThat(router.shardFor(userId)).isEqualTo("shard-1"));
+    }
+
+    @Test
+    @DisplayName("Should skip a cart whose write lock is held and move it on the next run")
+    void shouldSkipBusyCart() throws Exception {
+        // Arrange
+        UUID busy = insertCart("shard-0", userOn("shard-1"), 1);
+        ShardRebalancer rebalancer = new ShardRebalancer(router, shards, cartLocks, 10);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = Thread.ofVirtual().start(() -> {
+            try {
+                ReentrantLock lock = cartLocks.acquire(busy);
+                locked.countDown();
+                release.await();
+                lock.unlock();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        locked.await();
+
+        // Act
+        rebalancer.rebalance();
+        List<UUID> whileBusy = userIds("shard-0");
+        release.countDown();
+        holder.join();
+        rebalancer.rebalance();
+
+        // Assert
+        assertThat(whileBusy).containsExactly(busy);
+        assertThat(userIds("shard-0")).isEmpty();
+        assertThat(userIds("shard-1")).containsExactly(busy);
+    }
+
+    @Test
+    @DisplayName("Should replace the leftovers of an interrupted run on the target shard")
+    void shouldReplaceLeftoversOfInterruptedRun() {
+        // Arrange
+        UUID userId = insertCart("shard-0", userOn("shard-1"), 3);
+        UUID cartId = new JdbcTemplate(shards.get("shard-0"))
+                .queryForObject("select cart_id from carts where user_id = ?", UUID.class, userId);
+        new JdbcTemplate(shards.get("shard-1")).update(
+                "insert into carts (cart_id, user_id, status) values (?, ?, 'ACTIVE')", cartId, userId);
+        ShardRebalancer rebalancer = new ShardRebalancer(router, shards, cartLocks, 10);
+
+        // Act
+        rebalancer.rebalance();
+
+        // Assert
+        assertThat(userIds("shard-0")).isEmpty();
+        assertThat(userIds("shard-1")).containsExactly(userId);
+        assertThat(count("shard-1", "cart_item")).isEqualTo(3);
+    }
+
+    private UUID insertCart(String shard, UUID userId, int items) {
+        JdbcTemplate jdbc = new JdbcTemplate(shards.get(shard));
+        UUID cartId = UUID.randomUUID();
+        jdbc.update("insert into carts (cart_id, user_id, status) values (?, ?, 'ACTIVE')", cartId, userId);
+        for (int i = 0; i < items; i++) {
+            jdbc.update("insert into cart_item (cart_item_id, cart_id, product_id, quantity) values (?, ?, ?, ?)",
+                    UUID.randomUUID(), cartId, UUID.randomUUID(), i + 1);
+        }
+        return userId;
+    }
+
+    private List<UUID> userIds(String shard) {
+        return new JdbcTemplate(shards.get(shard)).queryForList("select user_id from carts", UUID.class);
+    }
+
+    private int count(String shard, String table) {
+        return new JdbcTemplate(shards.get(shard)).queryForObject("select count(*) from " + table, Integer.class);
+    }
+
+    private static UUID userOn(String shard) {
+        UUID userId;
+        do {
+            userId = UUID.randomUUID();
+        } while (!RING.shardFor(userId).equals(shard));
+        return userId;
+    }
+}
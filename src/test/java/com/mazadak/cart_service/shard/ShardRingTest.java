@@ -0,0 +1,57 @@
+package com.mazadak.cart_service.shard;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Shard Ring Tests")
+class ShardRingTest {
+
+    private static final int USERS = 20_000;
+
+    @Test
+    @DisplayName("Should spread users evenly across shards")
+    void shouldSpreadUsersEvenly() {
+        // Arrange
+        ShardRing ring = new ShardRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        Map<String, Integer> counts = new HashMap<>();
+
+        // Act
+        for (int i = 0; i < USERS; i++) {
+            counts.merge(ring.shardFor(UUID.randomUUID()), 1, Integer::sum);
+        }
+
+        // Assert
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(USERS / 4 * 8 / 10, USERS / 4 * 12 / 10));
+    }
+
+    @Test
+    @DisplayName("Should only move users onto the added shard")
+    void shouldOnlyMoveUsersToNewShard() {
+        // Arrange
+        ShardRing before = new ShardRing(List.of("shard-0", "shard-1", "shard-2"), 128);
+        ShardRing after = new ShardRing(List.of("shard-0", "shard-1", "shard-2", "shard-3"), 128);
+        int moved = 0;
+
+        // Act
+        for (int i = 0; i < USERS; i++) {
+            UUID userId = UUID.randomUUID();
+            String from = before.shardFor(userId);
+            String to = after.shardFor(userId);
+            if (!from.equals(to)) {
+                assertThat(to).isEqualTo("shard-3");
+                moved++;
+            }
+        }
+
+        // Assert
+        assertThat(moved).isBetween(USERS / 4 * 8 / 10, USERS / 4 * 12 / 10);
+    }
+}
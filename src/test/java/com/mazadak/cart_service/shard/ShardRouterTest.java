@@ -0,0 +1,108 @@
+package com.mazadak.cart_service.shard;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Shard Router Tests")
+class ShardRouterTest {
+
+    private static final ShardRing RING = new ShardRing(List.of("shard-0", "shard-1"), 64);
+
+    private static final ShardRing PREVIOUS_RING = new ShardRing(List.of("shard-0"), 64);
+
+    private ShardDataSources shards;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        for (String shard : RING.shards()) {
+            DataSource pool = new DriverManagerDataSource(
+                    "jdbc:h2:mem:router-" + shard + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+            new JdbcTemplate(pool).execute("create table carts (cart_id uuid primary key, user_id uuid not null unique)");
+            pools.put(shard, pool);
+        }
+        shards = new ShardDataSources(pools);
+    }
+
+    @Test
+    @DisplayName("Should route a cart not moved yet to the shard of the previous ring")
+    void shouldRouteUnmovedCartToPreviousShard() {
+        // Arrange
+        ShardRouter router = new ShardRouter(RING, PREVIOUS_RING, shards);
+        UUID userId = movingUser();
+        insertCart("shard-0", userId);
+
+        // Act & Assert
+        assertThat(router.isMoving(userId)).isTrue();
+        assertThat(router.shardFor(userId)).isEqualTo("shard-0");
+    }
+
+    @Test
+    @DisplayName("Should route a user without a cart on the previous shard to the current ring, where new carts are created")
+    void shouldRouteNewCartToCurrentRing() {
+        // Arrange
+        ShardRouter router = new ShardRouter(RING, PREVIOUS_RING, shards);
+        UUID userId = movingUser();
+
+        // Act
+        String shard = router.shardFor(userId);
+        String moved = router.callFor(userId, ShardContext::current);
+
+        // Assert
+        assertThat(shard).isEqualTo("shard-1");
+        assertThat(moved).isEqualTo("shard-1");
+    }
+
+    @Test
+    @DisplayName("Should only use the current ring when no rebalance is configured")
+    void shouldUseCurrentRingWithoutPreviousRing() {
+        // Arrange
+        ShardRouter router = new ShardRouter(RING, null, shards);
+        UUID userId = movingUser();
+        insertCart("shard-0", userId);
+
+        // Act & Assert
+        assertThat(router.isMoving(userId)).isFalse();
+        assertThat(router.shardFor(userId)).isEqualTo("shard-1");
+    }
+
+    @Test
+    @DisplayName("Should not treat carts placed on the same shard by both rings as moving")
+    void shouldNotMoveCartsOnSameShard() {
+        // Arrange
+        ShardRouter router = new ShardRouter(RING, PREVIOUS_RING, shards);
+        UUID userId = userOn("shard-0");
+
+        // Act & Assert
+        assertThat(router.isMoving(userId)).isFalse();
+        assertThat(router.shardFor(userId)).isEqualTo("shard-0");
+    }
+
+    private void insertCart(String shard, UUID userId) {
+        new JdbcTemplate(shards.get(shard)).update("insert into carts (cart_id, user_id) values (?, ?)",
+                UUID.randomUUID(), userId);
+    }
+
+    private static UUID movingUser() {
+        return userOn("shard-1");
+    }
+
+    private static UUID userOn(String shard) {
+        UUID userId;
+        do {
+            userId = UUID.randomUUID();
+        } while (!RING.shardFor(userId).equals(shard));
+        return userId;
+    }
+}
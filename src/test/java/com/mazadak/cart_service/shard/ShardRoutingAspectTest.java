@@ -0,0 +1,103 @@
+package com.mazadak.cart_service.shard;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.lock.StripedCartLocks;
+import com.mazadak.cart_service.service.CartService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Shard Routing Aspect Tests")
+class ShardRoutingAspectTest {
+
+    private final ShardRouter router = mock(ShardRouter.class);
+
+    private final StripedCartLocks cartLocks = new StripedCartLocks(
+            new CartWriteLockProperties(true, 16, Duration.ofMillis(50)), new SimpleMeterRegistry());
+
+    @Test
+    @DisplayName("Should hold the cart's write lock for a read of a cart the rebalancer may move")
+    void shouldLockReadsOfMovingCarts() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        when(router.isMoving(userId)).thenReturn(true);
+        when(router.shardFor(userId)).thenReturn("shard-0");
+        AtomicReference<String> shard = new AtomicReference<>();
+        AtomicBoolean locked = new AtomicBoolean();
+        CartService service = mock(CartService.class);
+        when(service.isActive(userId)).thenAnswer(invocation -> {
+            shard.set(ShardContext.current());
+            locked.set(isLockedByOtherThread(userId));
+            return true;
+        });
+
+        // Act
+        proxy(service).isActive(userId);
+
+        // Assert
+        assertThat(shard.get()).isEqualTo("shard-0");
+        assertThat(locked.get()).isTrue();
+        assertThat(isLockedByOtherThread(userId)).isFalse();
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should route carts that stay on their shard without locking")
+    void shouldNotLockSettledCarts() {
+        // Arrange
+        UUID userId = UUID.randomUUID();
+        when(router.shardFor(userId)).thenReturn("shard-1");
+        AtomicReference<String> shard = new AtomicReference<>();
+        AtomicBoolean locked = new AtomicBoolean();
+        CartService service = mock(CartService.class);
+        when(service.isActive(userId)).thenAnswer(invocation -> {
+            shard.set(ShardContext.current());
+            locked.set(isLockedByOtherThread(userId));
+            return true;
+        });
+
+        // Act
+        proxy(service).isActive(userId);
+
+        // Assert
+        assertThat(shard.get()).isEqualTo("shard-1");
+        assertThat(locked.get()).isFalse();
+    }
+
+    // A stripe lock is reentrant, so check it from a thread that does not own it
+    private boolean isLockedByOtherThread(UUID userId) {
+        AtomicBoolean free = new AtomicBoolean();
+        try {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    var lock = cartLocks.acquire(userId);
+                    free.set(lock != null);
+                    if (lock != null) {
+                        lock.unlock();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return !free.get();
+    }
+
+    private CartService proxy(CartService target) {
+        AspectJProxyFactory factory = new AspectJProxyFactory(target);
+        factory.addAspect(new ShardRoutingAspect(router, cartLocks));
+        return factory.getProxy();
+    }
+}
@@ -0,0 +1,60 @@
+package com.mazadak.cart_service.shedding;
+
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("AIMD Concurrency Limit Tests")
+class AimdConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+    private final AimdConcurrencyLimit limit = new AimdConcurrencyLimit(new LoadSheddingProperties(
+            true, 10, 2, 20, Duration.ofMillis(100), 0.5, 20, 40, 1000, 10, 20, Duration.ofSeconds(1)));
+
+    @Test
+    @DisplayName("Should reject requests beyond the limit until one is released")
+    void shouldRejectBeyondLimit() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire()).isTrue();
+        }
+
+        // Act
+        boolean beyond = limit.tryAcquire();
+        limit.release(FAST, false);
+        boolean afterRelease = limit.tryAcquire();
+
+        // Assert
+        assertThat(beyond).isFalse();
+        assertThat(afterRelease).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit on slow requests and grow it back on fast ones")
+    void shouldAdaptToLatency() {
+        // Act
+        limit.tryAcquire();
+        limit.release(SLOW, false);
+        int afterSlow = limit.limit();
+        for (int i = 0; i < 3; i++) {
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.tryAcquire();
+            limit.release(FAST, false);
+            limit.release(FAST, false);
+            limit.release(FAST, false);
+        }
+
+        // Assert
+        assertThat(afterSlow).isEqualTo(5);
+        assertThat(limit.limit()).isGreaterThan(afterSlow);
+    }
+}
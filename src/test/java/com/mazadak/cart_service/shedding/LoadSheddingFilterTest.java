@@ -0,0 +1,199 @@
+package com.mazadak.cart_service.shedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+import com.mazadak.cart_service.exception.BulkheadFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Load Shedding Filter Tests")
+class LoadSheddingFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final LoadSheddingFilter filter = new LoadSheddingFilter(new LoadSheddingProperties(
+            true, 10, 2, 20, Duration.ofMillis(100), 0.5, 1, 2, 1000, 10, 20, Duration.ofSeconds(1)),
+            new ObjectMapper(), meterRegistry);
+
+    @Test
+    @DisplayName("Should pass cart requests through while the user is within their rate")
+    void shouldPassRequestsWithinRate() throws Exception {
+        // Arrange
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts/items", "user"), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(meterRegistry.get("cart.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After once the user has used up their burst")
+    void shouldRejectUserBeyondBurst() throws Exception {
+        // Arrange
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), new MockFilterChain());
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // Act
+        filter.doFilter(request("/carts", "user"), response, chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNull();
+        assertThat(response.getStatus()).isEqualTo(429);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(meterRegistry.get("cart.load.shed").tag("reason", "user-rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should limit guests by their guest id and keep users apart")
+    void shouldLimitGuestsSeparately() throws Exception {
+        // Arrange
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), new MockFilterChain());
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), new MockFilterChain());
+        MockHttpServletRequest guest = new MockHttpServletRequest("GET", "/carts/guest");
+        guest.addHeader("X-Guest-Id", "guest");
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(guest, new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should leave internal and non-cart endpoints alone")
+    void shouldNotFilterInternalOrOtherEndpoints() throws Exception {
+        // Arrange
+        for (int i = 0; i < 2; i++) {
+            filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), new MockFilterChain());
+        }
+        MockFilterChain internal = new MockFilterChain();
+        MockFilterChain actuator = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request("/carts/internal/export", "user"), new MockHttpServletResponse(), internal);
+        filter.doFilter(request("/actuator/health", "user"), new MockHttpServletResponse(), actuator);
+
+        // Assert
+        assertThat(internal.getRequest()).isNotNull();
+        assertThat(actuator.getRequest()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("Should not let a slow, saturated product catalog shrink the limit for GET /carts")
+    void shouldIsolateLimitFromProductCatalog() throws Exception {
+        // Arrange
+        double initialLimit = limit();
+        for (int i = 0; i < 3; i++) {
+            MockHttpServletRequest detailed = request("/carts/items/detailed", "user-" + i);
+            filter.doFilter(detailed, new MockHttpServletResponse(), (request, response) -> {
+                sleepPastThreshold();
+                rejectByBulkhead(request, response);
+            });
+        }
+        MockFilterChain chain = new MockFilterChain();
+
+        // Act
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), chain);
+
+        // Assert
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(limit()).isEqualTo(initialLimit);
+        assertThat(meterRegistry.get("cart.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should not shrink the limit for requests a full bulkhead rejected after waiting")
+    void shouldNotSampleBulkheadRejections() throws Exception {
+        // Arrange
+        double initialLimit = limit();
+
+        // Act
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), (request, response) -> {
+            sleepPastThreshold();
+            rejectByBulkhead(request, response);
+        });
+
+        // Assert
+        assertThat(limit()).isEqualTo(initialLimit);
+        assertThat(meterRegistry.get("cart.concurrency.in.flight").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit for slow database-only requests")
+    void shouldShrinkLimitForSlowRequests() throws Exception {
+        // Arrange
+        double initialLimit = limit();
+
+        // Act
+        filter.doFilter(request("/carts", "user"), new MockHttpServletResponse(), (request, response) -> sleepPastThreshold());
+
+        // Assert
+        assertThat(limit()).isLessThan(initialLimit);
+    }
+
+    @Test
+    @DisplayName("Should classify requests on the path as MVC maps it, whatever its spelling")
+    void shouldClassifyNormalizedPaths() throws Exception {
+        // Arrange
+        double initialLimit = limit();
+        FilterChain slowChain = (request, response) -> sleepPastThreshold();
+
+        // Act
+        filter.doFilter(request("/carts/items/detailed;x=1", "user"), new MockHttpServletResponse(), slowChain);
+        filter.doFilter(request("/carts/items/%64etailed", "other-user"), new MockHttpServletResponse(), slowChain);
+        for (int i = 0; i < 3; i++) {
+            filter.doFilter(request("/carts/internal;a=b/export", "internal-user"), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+
+        // Assert
+        assertThat(limit()).isEqualTo(initialLimit);
+        assertThat(meterRegistry.get("cart.load.shed").tag("reason", "user-rate").counter().count()).isZero();
+    }
+
+    private double limit() {
+        return meterRegistry.get("cart.concurrency.limit").gauge().value();
+    }
+
+    // What the bulkhead aspect's exception leaves behind once MVC has resolved it
+    private static void rejectByBulkhead(ServletRequest request, ServletResponse response) {
+        request.setAttribute(DispatcherServlet.EXCEPTION_ATTRIBUTE, new BulkheadFullException("Cart service is busy, please retry"));
+        ((HttpServletResponse) response).setStatus(503);
+    }
+
+    private static void sleepPastThreshold() {
+        try {
+            Thread.sleep(150);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static MockHttpServletRequest request(String uri, String user) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-User-Id", user);
+        return request;
+    }
+}
@@ -0,0 +1,67 @@
+package com.mazadak.cart_service.shedding;
+
+import com.mazadak.cart_service.config.LoadSheddingProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("User Rate Limiter Tests")
+class UserRateLimiterTest {
+
+    private final UserRateLimiter limiter = new UserRateLimiter(new LoadSheddingProperties(
+            true, 10, 2, 20, Duration.ofMillis(100), 0.5, 100, 3, 1000, 10, 20, Duration.ofSeconds(1)));
+
+    @Test
+    @DisplayName("Should allow a burst and then tell how long to wait for the next token")
+    void shouldAllowBurstThenReturnWait() {
+        // Act
+        long first = limiter.tryTake("user");
+        long second = limiter.tryTake("user");
+        long third = limiter.tryTake("user");
+        long beyond = limiter.tryTake("user");
+
+        // Assert
+        assertThat(first).isZero();
+        assertThat(second).isZero();
+        assertThat(third).isZero();
+        assertThat(beyond).isPositive().isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    @Test
+    @DisplayName("Should refill the bucket at the user rate")
+    void shouldRefillOverTime() throws InterruptedException {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limiter.tryTake("user");
+        }
+        long wait = limiter.tryTake("user");
+
+        // Act
+        Thread.sleep(TimeUnit.NANOSECONDS.toMillis(wait) + 1);
+        long afterWait = limiter.tryTake("user");
+
+        // Assert
+        assertThat(afterWait).isZero();
+    }
+
+    @Test
+    @DisplayName("Should keep a bucket per user")
+    void shouldLimitUsersIndependently() {
+        // Arrange
+        for (int i = 0; i < 3; i++) {
+            limiter.tryTake("user");
+        }
+
+        // Act
+        long exhausted = limiter.tryTake("user");
+        long other = limiter.tryTake("other-user");
+
+        // Assert
+        assertThat(exhausted).isPositive();
+        assertThat(other).isZero();
+    }
+}
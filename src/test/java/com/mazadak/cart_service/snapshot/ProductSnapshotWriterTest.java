@@ -0,0 +1,110 @@
+package com.mazadak.cart_service.snapshot;
+
+import com.mazadak.cart_service.model.ProductSnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+@DisplayName("Product Snapshot Writer Tests")
+class ProductSnapshotWriterTest {
+
+    private final UUID productId = UUID.randomUUID();
+
+    private JdbcTemplate jdbc;
+
+    private ProductSnapshotWriter writer;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        DataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:snapshots-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("create table cart_item (item_id uuid primary key, product_id uuid not null, "
+                + "product_title varchar(500), product_description text, product_price decimal(19, 2), "
+                + "product_image varchar(2048), snapshot_version bigint, snapshot_taken_at bigint)");
+        writer = new ProductSnapshotWriter(new NamedParameterJdbcTemplate(dataSource),
+                mock(ObjectProvider.class), new DataSourceTransactionManager(dataSource));
+    }
+
+    @Test
+    @DisplayName("Should write the snapshot and when it was taken to every item of the product")
+    void shouldWriteSnapshotToEveryItem() {
+        // Arrange
+        insertItem(productId, null, null);
+        insertItem(productId, 100L, 100L);
+        insertItem(UUID.randomUUID(), null, null);
+
+        // Act
+        int updated = writer.write(Map.of(productId, snapshot("New", 200L, 5_000L)));
+
+        // Assert
+        assertThat(updated).isEqualTo(2);
+        assertThat(jdbc.queryForList("select product_title, snapshot_version, snapshot_taken_at from cart_item "
+                + "where product_id = ?", productId))
+                .allSatisfy(row -> {
+                    assertThat(row.get("PRODUCT_TITLE")).isEqualTo("New");
+                    assertThat(row.get("SNAPSHOT_VERSION")).isEqualTo(200L);
+                    assertThat(row.get("SNAPSHOT_TAKEN_AT")).isEqualTo(5_000L);
+                });
+    }
+
+    @Test
+    @DisplayName("Should keep a newer snapshot, along with when it was taken")
+    void shouldNotRollBackNewerSnapshot() {
+        // Arrange
+        insertItem(productId, 300L, 4_000L);
+
+        // Act
+        int updated = writer.write(Map.of(productId, snapshot("Old", 200L, 5_000L)));
+
+        // Assert
+        assertThat(updated).isZero();
+        assertThat(jdbc.queryForMap("select snapshot_version, snapshot_taken_at from cart_item"))
+                .containsEntry("SNAPSHOT_VERSION", 300L)
+                .containsEntry("SNAPSHOT_TAKEN_AT", 4_000L);
+    }
+
+    @Test
+    @DisplayName("Should write every chunk when sharding is not enabled")
+    void shouldWriteEveryChunkWithoutShards() {
+        // Arrange
+        Map<UUID, ProductSnapshot> snapshots = new LinkedHashMap<>();
+        for (int i = 0; i < 5; i++) {
+            UUID product = UUID.randomUUID();
+            insertItem(product, null, null);
+            snapshots.put(product, snapshot("Product " + i, 200L, 5_000L));
+        }
+
+        // Act
+        int updated = writer.writeEverywhere(snapshots, 2);
+
+        // Assert
+        assertThat(updated).isEqualTo(5);
+        assertThat(jdbc.queryForObject("select count(*) from cart_item where snapshot_taken_at = 5000", Integer.class))
+                .isEqualTo(5);
+    }
+
+    private void insertItem(UUID product, Long version, Long takenAt) {
+        jdbc.update("insert into cart_item (item_id, product_id, snapshot_version, snapshot_taken_at) values (?, ?, ?, ?)",
+                UUID.randomUUID(), product, version, takenAt);
+    }
+
+    private static ProductSnapshot snapshot(String title, long version, long takenAt) {
+        return new ProductSnapshot(title, null, BigDecimal.ONE, null, version, takenAt);
+    }
+}
@@ -0,0 +1,94 @@
+package com.mazadak.cart_service.totals;
+
+import com.mazadak.cart_service.repository.CartRepository;
+import com.mazadak.cart_service.shard.ShardContext;
+import com.mazadak.cart_service.shard.ShardDataSources;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Cart Totals Backfill Tests")
+class CartTotalsBackfillTest {
+
+    private final CartRepository cartRepository = mock(CartRepository.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    @SuppressWarnings("unchecked")
+    private final ObjectProvider<ShardDataSources> shards = mock(ObjectProvider.class);
+
+    @Test
+    @DisplayName("Should backfill in chunks, a transaction each, until no cart is left")
+    void shouldBackfillInChunks() {
+        // Arrange
+        TransactionStatus status = new SimpleTransactionStatus();
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(cartRepository.backfillTotals(CartTotalsBackfill.CHUNK)).thenReturn(1000, 1000, 400, 0);
+        CartTotalsBackfill backfill = new CartTotalsBackfill(cartRepository, shards, transactionManager);
+
+        // Act
+        long updated = backfill.backfill();
+
+        // Assert
+        assertThat(updated).isEqualTo(2400);
+        verify(cartRepository, times(4)).backfillTotals(CartTotalsBackfill.CHUNK);
+        verify(transactionManager, times(4)).commit(status);
+    }
+
+    @Test
+    @DisplayName("Should backfill every shard")
+    void shouldBackfillEveryShard() {
+        // Arrange
+        Map<String, DataSource> pools = new LinkedHashMap<>();
+        pools.put("shard-0", mock(DataSource.class));
+        pools.put("shard-1", mock(DataSource.class));
+        when(shards.getIfAvailable()).thenReturn(new ShardDataSources(pools));
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        List<String> visited = new ArrayList<>();
+        when(cartRepository.backfillTotals(CartTotalsBackfill.CHUNK)).thenAnswer(invocation -> {
+            visited.add(ShardContext.current());
+            return visited.size() % 2 == 1 ? 3 : 0;
+        });
+
+        // Act
+        long updated = new CartTotalsBackfill(cartRepository, shards, transactionManager).backfill();
+
+        // Assert
+        assertThat(updated).isEqualTo(6);
+        assertThat(visited).containsExactly("shard-0", "shard-0", "shard-1", "shard-1");
+        assertThat(ShardContext.current()).isNull();
+    }
+
+    @Test
+    @DisplayName("Should stop between chunks once the context stops")
+    void shouldStopBetweenChunks() {
+        // Arrange
+        when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        when(cartRepository.backfillTotals(CartTotalsBackfill.CHUNK)).thenReturn(1000);
+        CartTotalsBackfill backfill = new CartTotalsBackfill(cartRepository, shards, transactionManager);
+        backfill.stop();
+
+        // Act
+        long updated = backfill.backfill();
+
+        // Assert
+        assertThat(updated).isEqualTo(1000);
+        verify(cartRepository).backfillTotals(CartTotalsBackfill.CHUNK);
+    }
+}
@@ -0,0 +1,104 @@
+package com.mazadak.cart_service.writebehind;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Mutation Journal Tests")
+class MutationJournalTest {
+
+    private static final int SIZE = 10 * MutationJournal.RECORD_SIZE;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    @DisplayName("Should read back records after reopening")
+    void shouldReadBackRecordsAfterReopening() throws Exception {
+        // Arrange
+        Path file = dir.resolve("journal");
+        UUID userId = UUID.randomUUID();
+        UUID itemId = UUID.randomUUID();
+        try (MutationJournal journal = new MutationJournal(file, SIZE, false)) {
+            journal.append(1, userId, itemId, 3);
+            journal.append(2, userId, itemId, 5);
+        }
+
+        // Act
+        List<MutationJournal.JournalRecord> records = new ArrayList<>();
+        try (MutationJournal journal = new MutationJournal(file, SIZE, false)) {
+            journal.forEach(records::add);
+        }
+
+        // Assert
+        assertThat(records).containsExactly(
+                new MutationJournal.JournalRecord(1, userId, itemId, 3),
+                new MutationJournal.JournalRecord(2, userId, itemId, 5));
+    }
+
+    @Test
+    @DisplayName("Should not replay records written before a reset")
+    void shouldNotReplayRecordsBeforeReset() throws Exception {
+        // Arrange
+        Path file = dir.resolve("journal");
+        UUID itemId = UUID.randomUUID();
+        try (MutationJournal journal = new MutationJournal(file, SIZE, false)) {
+            journal.append(1, UUID.randomUUID(), UUID.randomUUID(), 1);
+            journal.append(2, UUID.randomUUID(), UUID.randomUUID(), 1);
+            journal.reset();
+            journal.append(3, UUID.randomUUID(), itemId, 4);
+        }
+
+        // Act
+        List<MutationJournal.JournalRecord> records = new ArrayList<>();
+        try (MutationJournal journal = new MutationJournal(file, SIZE, false)) {
+            journal.forEach(records::add);
+        }
+
+        // Assert
+        assertThat(records).singleElement().extracting(MutationJournal.JournalRecord::itemId).isEqualTo(itemId);
+    }
+
+    @Test
+    @DisplayName("Should zero every record on reset of a journal larger than the zero block")
+    void shouldZeroLargeJournalOnReset() throws Exception {
+        // Arrange
+        Path file = dir.resolve("journal");
+        int records = 300;
+        try (MutationJournal journal = new MutationJournal(file, records * MutationJournal.RECORD_SIZE, false)) {
+            for (int seq = 1; seq <= records; seq++) {
+                journal.append(seq, UUID.randomUUID(), UUID.randomUUID(), 1);
+            }
+
+            // Act
+            journal.reset();
+            journal.append(records + 1, UUID.randomUUID(), UUID.randomUUID(), 1);
+            journal.append(records + 2, UUID.randomUUID(), UUID.randomUUID(), 1);
+        }
+
+        // Assert
+        List<MutationJournal.JournalRecord> replayed = new ArrayList<>();
+        try (MutationJournal journal = new MutationJournal(file, records * MutationJournal.RECORD_SIZE, false)) {
+            journal.forEach(replayed::add);
+        }
+        assertThat(replayed).extracting(MutationJournal.JournalRecord::seq).containsExactly(records + 1L, records + 2L);
+    }
+
+    @Test
+    @DisplayName("Should refuse appends when full")
+    void shouldRefuseAppendsWhenFull() throws Exception {
+        try (MutationJournal journal = new MutationJournal(dir.resolve("journal"), 2 * MutationJournal.RECORD_SIZE, false)) {
+            // Act & Assert
+            assertThat(journal.append(1, UUID.randomUUID(), UUID.randomUUID(), 1)).isTrue();
+            assertThat(journal.append(2, UUID.randomUUID(), UUID.randomUUID(), 1)).isTrue();
+            assertThat(journal.append(3, UUID.randomUUID(), UUID.randomUUID(), 1)).isFalse();
+        }
+    }
+}
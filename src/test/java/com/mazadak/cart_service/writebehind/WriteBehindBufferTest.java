@@ -0,0 +1,179 @@
+package com.mazadak.cart_service.writebehind;
+
+import com.mazadak.cart_service.config.CartWriteLockProperties;
+import com.mazadak.cart_service.config.ShardingProperties;
+import com.mazadak.cart_service.config.WriteBehindProperties;
+import com.mazadak.cart_service.exception.CartBusyException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@DisplayName("Write-Behind Buffer Tests")
+class WriteBehindBufferTest {
+
+    @TempDir
+    Path dir;
+
+    private final UUID userId = UUID.randomUUID();
+    private final UUID itemId = UUID.randomUUID();
+    private final UUID otherItemId = UUID.randomUUID();
+
+    private final List<Map<UUID, Map<UUID, Integer>>> written = new ArrayList<>();
+
+    private final List<WriteBehindBuffer> started = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        started.forEach(WriteBehindBuffer::stop);
+    }
+
+    @Test
+    @DisplayName("Should write the latest quantity of each item once per flush")
+    void shouldCoalesceChanges() {
+        // Arrange
+        WriteBehindBuffer buffer = start(recordingWriter());
+        buffer.record(userId, itemId, 2);
+        buffer.record(userId, itemId, 3);
+        buffer.record(userId, otherItemId, 1);
+
+        // Act
+        buffer.flush();
+
+        // Assert
+        assertThat(written).containsExactly(Map.of(userId, Map.of(itemId, 3, otherItemId, 1)));
+        assertThat(buffer.hasPending(userId)).isFalse();
+        assertThat(buffer.bufferedQuantity(userId, itemId)).isNull();
+    }
+
+    @Test
+    @DisplayName("Should keep a failed batch buffered and let newer changes win")
+    void shouldRequeueFailedBatch() {
+        // Arrange
+        CartQuantityWriter writer = mock(CartQuantityWriter.class);
+        WriteBehindBuffer buffer = start(writer);
+        buffer.record(userId, itemId, 2);
+        buffer.record(userId, otherItemId, 4);
+        doAnswer(invocation -> {
+            // Appends go to the other journal while the batch is in flight
+            buffer.record(userId, itemId, 7);
+            throw new IllegalStateException("database down");
+        }).when(writer).write(any());
+
+        // Act
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+
+        // Assert
+        assertThat(buffer.hasPending(userId)).isTrue();
+        assertThat(buffer.bufferedQuantity(userId, itemId)).isEqualTo(7);
+        assertThat(buffer.bufferedQuantity(userId, otherItemId)).isEqualTo(4);
+    }
+
+    @Test
+    @DisplayName("Should write both journals' changes on the flush after a failed one, then replay nothing")
+    void shouldCoverBothJournalsAfterFailure() {
+        // Arrange
+        CartQuantityWriter writer = mock(CartQuantityWriter.class);
+        WriteBehindBuffer buffer = start(writer);
+        buffer.record(userId, itemId, 2);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("database down");
+        }).when(writer).write(any());
+        assertThatThrownBy(buffer::flush).isInstanceOf(IllegalStateException.class);
+        buffer.record(userId, otherItemId, 5);
+        doAnswer(invocation -> written.add(copy(invocation.getArgument(0)))).when(writer).write(any());
+
+        // Act
+        buffer.flush();
+        buffer.stop();
+        WriteBehindBuffer restarted = start(recordingWriter());
+
+        // Assert
+        assertThat(written).containsExactly(Map.of(userId, Map.of(itemId, 2, otherItemId, 5)));
+        assertThat(restarted.hasPending(userId)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should replay unflushed changes on restart, the latest one per item")
+    void shouldReplayJournalOnRestart() {
+        // Arrange
+        CartQuantityWriter writer = mock(CartQuantityWriter.class);
+        WriteBehindBuffer crashed = start(writer);
+        crashed.record(userId, itemId, 2);
+        doAnswer(invocation -> {
+            throw new IllegalStateException("database down");
+        }).when(writer).write(any());
+        // The failed flush leaves the first change in the idle journal and the next ones go to the other
+        assertThatThrownBy(crashed::flush).isInstanceOf(IllegalStateException.class);
+        crashed.record(userId, itemId, 6);
+        crashed.record(userId, otherItemId, 1);
+        started.remove(crashed);
+
+        // Act
+        start(recordingWriter());
+
+        // Assert
+        assertThat(written).containsExactly(Map.of(userId, Map.of(itemId, 6, otherItemId, 1)));
+    }
+
+    @Test
+    @DisplayName("Should refuse a change once the journal is full")
+    void shouldRejectChangesWhenJournalIsFull() {
+        // Arrange
+        CartQuantityWriter writer = mock(CartQuantityWriter.class);
+        WriteBehindBuffer buffer = start(writer, DataSize.ofBytes(2L * MutationJournal.RECORD_SIZE));
+        buffer.record(userId, itemId, 1);
+        buffer.record(userId, itemId, 2);
+
+        // Act & Assert
+        assertThatThrownBy(() -> buffer.record(userId, itemId, 3)).isInstanceOf(CartBusyException.class);
+        assertThat(buffer.bufferedQuantity(userId, itemId)).isEqualTo(2);
+        verify(writer, never()).write(any());
+    }
+
+    private CartQuantityWriter recordingWriter() {
+        CartQuantityWriter writer = mock(CartQuantityWriter.class);
+        doAnswer(invocation -> written.add(copy(invocation.getArgument(0)))).when(writer).write(any());
+        return writer;
+    }
+
+    private WriteBehindBuffer start(CartQuantityWriter writer) {
+        return start(writer, DataSize.ofKilobytes(64));
+    }
+
+    // Flushes are driven by the tests, the scheduled one is pushed out of the way
+    private WriteBehindBuffer start(CartQuantityWriter writer, DataSize journalSize) {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(
+                new WriteBehindProperties(true, Duration.ofHours(1), dir, journalSize, false),
+                new CartWriteLockProperties(true, 16, Duration.ofSeconds(1)),
+                new ShardingProperties(false, List.of(), List.of(), List.of(), 64, 100),
+                writer, new SimpleMeterRegistry());
+        buffer.start();
+        started.add(buffer);
+        return buffer;
+    }
+
+    private static Map<UUID, Map<UUID, Integer>> copy(Map<UUID, Map<UUID, Integer>> quantities) {
+        Map<UUID, Map<UUID, Integer>> copy = new HashMap<>();
+        quantities.forEach((userId, items) -> copy.put(userId, Map.copyOf(items)));
+        return copy;
+    }
+}